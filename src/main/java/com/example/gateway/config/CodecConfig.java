@@ -0,0 +1,116 @@
+package com.example.gateway.config;
+
+import org.reactivestreams.Publisher;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyDecoder;
+import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyEncoder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * WebFluxのコーデック設定
+ *
+ * Smile形式はjackson-dataformat-smileがクラスパスにあれば
+ * デフォルトで登録されますが、CBOR形式は登録されないため
+ * カスタムコーデックとして追加します。
+ * また、レスポンスボディの書き換え時に使用するContent-Encodingとして、
+ * Gatewayが標準で提供するgzipに加えてdeflateを登録します。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+@Configuration
+public class CodecConfig {
+
+    /**
+     * CBORのエンコーダー・デコーダーを登録する
+     *
+     * @return コーデックカスタマイザー
+     */
+    @Bean
+    public CodecCustomizer cborCodecCustomizer() {
+        return configurer -> {
+            configurer.customCodecs().register(new SingleValueCborEncoder());
+            configurer.customCodecs().register(new Jackson2CborDecoder());
+        };
+    }
+
+    /**
+     * deflateでエンコードされたレスポンスボディのデコーダー・エンコーダーを登録する
+     *
+     * @return deflate用のMessageBodyDecoder/MessageBodyEncoder
+     */
+    @Bean
+    public DeflateMessageBodyResolver deflateMessageBodyResolver() {
+        return new DeflateMessageBodyResolver();
+    }
+
+    /**
+     * 単一値（Mono）のエンコードに対応したCBORエンコーダー
+     *
+     * Jackson2CborEncoderはストリームのエンコードに対応しておらず、
+     * EncoderHttpMessageWriterから呼ばれる encode() が常に例外となるため、
+     * Monoの場合は encodeValue() に委譲します。
+     */
+    static class SingleValueCborEncoder extends Jackson2CborEncoder {
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> mono) {
+                return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+
+    /**
+     * Content-Encoding: deflate（zlib形式）のデコーダー・エンコーダー
+     *
+     * GzipMessageBodyResolverと同様に、ModifyResponseBody等でのボディ書き換え前後に使用されます。
+     */
+    public static class DeflateMessageBodyResolver implements MessageBodyDecoder, MessageBodyEncoder {
+
+        @Override
+        public String encodingType() {
+            return "deflate";
+        }
+
+        @Override
+        public byte[] decode(byte[] encoded) {
+            try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(encoded))) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new IllegalStateException("deflateボディのデコードに失敗しました", e);
+            }
+        }
+
+        @Override
+        public byte[] encode(DataBuffer original) {
+            byte[] bytes = new byte[original.readableByteCount()];
+            original.read(bytes);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+                deflater.write(bytes);
+            } catch (IOException e) {
+                throw new IllegalStateException("deflateボディのエンコードに失敗しました", e);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.gateway.config;
+
+import com.example.gateway.loadbalancer.ConsistentHashLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ロードバランサーの設定
+ *
+ * user-info-route の転送先（lb://user-service）に対して、
+ * userIdによる一貫性ハッシュでインスタンスを選択する
+ * ロードバランサーを適用します。
+ *
+ * インスタンス一覧は spring.cloud.discovery.client.simple.instances で定義します。
+ * 別ファイルで管理する場合は spring.config.import で読み込みます。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+@Configuration
+@LoadBalancerClient(name = "user-service", configuration = ConsistentHashLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
@@ -8,6 +8,7 @@ import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerResponse;
 
+import static com.example.gateway.util.MediaTypes.USER_INFO_MEDIA_TYPES;
 import static org.springframework.web.reactive.function.server.RequestPredicates.*;
 
 /**
@@ -28,7 +29,8 @@ public class RouterConfig {
      * 
      * /api/** パスのエンドポイントをRouterFunctionで定義します。
      * これらのエンドポイントは、Gatewayからプロキシされたリクエストを
-     * 処理するために使用されます。
+     * 処理するために使用されます。Acceptヘッダーにより、JSONに加えて
+     * CBOR・Smile形式でのレスポンスを選択できます。
      * 
      * @param userInfoHandler ユーザー情報ハンドラー
      * @return RouterFunction
@@ -37,10 +39,10 @@ public class RouterConfig {
     public RouterFunction<ServerResponse> apiRoutes(UserInfoHandler userInfoHandler) {
         return RouterFunctions
                 .route(GET("/api/user-info")
-                        .and(accept(MediaType.APPLICATION_JSON)), 
+                        .and(accept(USER_INFO_MEDIA_TYPES.toArray(MediaType[]::new))), 
                         userInfoHandler::getUserInfo)
                 .andRoute(GET("/api/health")
-                        .and(accept(MediaType.APPLICATION_JSON)), 
+                        .and(accept(USER_INFO_MEDIA_TYPES.toArray(MediaType[]::new))), 
                         userInfoHandler::health);
     }
 
@@ -0,0 +1,721 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.loadbalancer.ConsistentHashLoadBalancer;
+import com.example.gateway.loadbalancer.ConsistentHashLoadBalancerConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.Response;
+import io.netty.channel.ChannelOption;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.TimeoutException;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.ORIGINAL_RESPONSE_CONTENT_TYPE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.PRESERVE_HOST_HEADER_ATTRIBUTE;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.removeAlreadyRouted;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setAlreadyRouted;
+
+/**
+ * 上流リクエストのヘッジングを行うGatewayフィルターファクトリー
+ *
+ * このフィルターは以下の機能を提供します：
+ * 1. 冪等なGET/HEADリクエストについて、ロードバランサーが選択したインスタンスへ送信
+ * 2. ルートの観測レイテンシ（デフォルトp95）以内に応答がない場合、別インスタンスへ2本目を送信
+ *    （ヘッジ先はハッシュキーに対するランデブーハッシュのスコアが2番目のインスタンス）
+ * 3. 先に応答した方を採用し、もう一方はキャンセル
+ * 4. ヘッジ予算（デフォルト: リクエスト数の5%）を超えるヘッジは送信しない
+ *
+ * ロードバランサーによるインスタンス解決後に動作するため、lb:// のルートでのみ有効です。
+ * インスタンスが1つしかない場合や、ヘッジ予算が残っておらずヘッジを送信できない場合は
+ * 通常のルーティング（NettyRoutingFilter）に委譲します。
+ * 上流への送信にはGatewayのHttpClient（spring.cloud.gateway.httpclient.* の設定）を使用し、
+ * NettyRoutingFilterと同様に、ルートのメタデータ（response-timeout・connect-timeout）が
+ * あればそれぞれの試行に適用します。
+ * レスポンスボディはメモリ上にバッファリングされるため、上限（デフォルト256KB）を超えた場合は
+ * 通常のルーティングでリクエストし直します（GET/HEADのみが対象のため再送は安全です）。
+ * 再送はヘッジ1回分として予算から差し引き、以降そのルートではヘッジを行わず
+ * 通常のルーティングに委譲します（大きな応答を返すルートで毎回二重に取得しないため）。
+ *
+ * メトリクス: gateway.hedge.sent, gateway.hedge.won,
+ * gateway.hedge.budget.exhausted（ヘッジ遅延に達したが予算不足で送信しなかった回数）,
+ * gateway.hedge.fallback（予算不足のためヘッジせず通常のルーティングに委譲した回数）,
+ * gateway.hedge.resend（ボディが上限を超えたため通常のルーティングで再送した回数）,
+ * gateway.hedge.upstream.latency（プライマリ試行のレイテンシ。いずれも route タグ付き）
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    private static final Logger logger = LoggerFactory.getLogger(HedgeGatewayFilterFactory.class);
+
+    /**
+     * ロードバランサーによるインスタンス解決の直後に実行する
+     */
+    public static final int HEDGE_FILTER_ORDER = ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+
+    private final WebClient webClient;
+    private final WebClient.Builder webClientBuilder;
+    private final HttpClient httpClient;
+    private final HttpClientProperties httpClientProperties;
+    private final ConcurrentMap<Integer, WebClient> connectTimeoutClients = new ConcurrentHashMap<>();
+    private final LoadBalancerClientFactory loadBalancerClientFactory;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider;
+    private final MeterRegistry meterRegistry;
+    private final String keyParam;
+
+    public HedgeGatewayFilterFactory(WebClient.Builder webClientBuilder,
+                                     HttpClient httpClient,
+                                     HttpClientProperties httpClientProperties,
+                                     LoadBalancerClientFactory loadBalancerClientFactory,
+                                     ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${" + ConsistentHashLoadBalancerConfiguration.KEY_PARAM_PROPERTY + ":"
+                                             + ConsistentHashLoadBalancerConfiguration.DEFAULT_KEY_PARAM + "}")
+                                     String keyParam) {
+        super(Config.class);
+        this.keyParam = keyParam;
+        this.webClientBuilder = webClientBuilder;
+        this.httpClient = httpClient;
+        this.httpClientProperties = httpClientProperties;
+        this.webClient = webClientBuilder.clone().clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+        this.loadBalancerClientFactory = loadBalancerClientFactory;
+        this.headersFiltersProvider = headersFiltersProvider;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Gatewayフィルターを適用する
+     *
+     * @param config フィルター設定
+     * @return Gatewayフィルター
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        HedgeState state = new HedgeState(config, meterRegistry);
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (!isHedgeable(exchange)) {
+                return chain.filter(exchange);
+            }
+
+            Response<ServiceInstance> lbResponse = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            URI requestUrl = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            if (lbResponse == null || !lbResponse.hasServer() || requestUrl == null || route == null) {
+                return chain.filter(exchange);
+            }
+
+            state.onRequest();
+            if (state.isOversizedRoute()) {
+                // 上限を超えるボディを返したルートは、バッファリングせず通常のルーティングに委譲する
+                return chain.filter(exchange);
+            }
+            if (!state.hasHedgeBudget()) {
+                // ヘッジを送信できないため、バッファリングせず通常のルーティングに委譲する
+                state.fallbacks.increment();
+                return chain.filter(exchange);
+            }
+            ServiceInstance primary = lbResponse.getServer();
+            return alternativeInstance(route.getUri().getHost(), primary, requestUrl)
+                    .map(alternative -> LoadBalancerUriTools.reconstructURI(alternative, requestUrl))
+                    .map(List::of)
+                    .defaultIfEmpty(List.of())
+                    .flatMap(alternatives -> alternatives.isEmpty()
+                            ? chain.filter(exchange)
+                            : hedge(exchange, chain, route, requestUrl, alternatives.get(0), state));
+        }, HEDGE_FILTER_ORDER);
+    }
+
+    /**
+     * ヘッジ対象のリクエストかどうかを判定する
+     *
+     * @param exchange サーバーエクスチェンジ
+     * @return 冪等なGET/HEADで、まだルーティングされていない場合true
+     */
+    private boolean isHedgeable(ServerWebExchange exchange) {
+        HttpMethod method = exchange.getRequest().getMethod();
+        return (HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)) && !isAlreadyRouted(exchange);
+    }
+
+    /**
+     * ロードバランサーが選択したインスタンス以外のインスタンスを1つ選択する
+     *
+     * ハッシュキーを持つリクエストは、ランデブーハッシュのスコアが2番目のインスタンスに送り、
+     * キーごとのキャッシュの局所性を保ちます（プライマリが外れた場合にキーが移る先と同じ）。
+     * キーを持たないリクエストは、インスタンス一覧でプライマリの次のインスタンスに送ります。
+     *
+     * @param serviceId サービスID
+     * @param primary 選択済みのインスタンス
+     * @param requestUrl プライマリへのリクエストURL
+     * @return 代替インスタンス（存在しない場合は空）
+     */
+    private Mono<ServiceInstance> alternativeInstance(String serviceId, ServiceInstance primary, URI requestUrl) {
+        ServiceInstanceListSupplier supplier = loadBalancerClientFactory.getInstance(serviceId, ServiceInstanceListSupplier.class);
+        if (supplier == null) {
+            return Mono.empty();
+        }
+        String key = UriComponentsBuilder.fromUri(requestUrl).build().getQueryParams().getFirst(keyParam);
+        return supplier.get().next().flatMap(instances -> {
+            List<ServiceInstance> candidates = (key == null || key.isEmpty())
+                    ? rotateAfter(instances, primary)
+                    : ConsistentHashLoadBalancer.rank(instances, key);
+            return Mono.justOrEmpty(candidates.stream()
+                    .filter(instance -> !isSameInstance(instance, primary))
+                    .findFirst());
+        });
+    }
+
+    /**
+     * インスタンス一覧を、指定したインスタンスの次から始まる順序に並べ替える
+     *
+     * @param instances インスタンス一覧
+     * @param primary 基準のインスタンス
+     * @return 並べ替えたインスタンス一覧（基準が含まれない場合は元の順序）
+     */
+    private static List<ServiceInstance> rotateAfter(List<ServiceInstance> instances, ServiceInstance primary) {
+        for (int i = 0; i < instances.size(); i++) {
+            if (isSameInstance(instances.get(i), primary)) {
+                List<ServiceInstance> rotated = new ArrayList<>(instances.subList(i + 1, instances.size()));
+                rotated.addAll(instances.subList(0, i));
+                return rotated;
+            }
+        }
+        return instances;
+    }
+
+    private static boolean isSameInstance(ServiceInstance a, ServiceInstance b) {
+        return a.getHost().equals(b.getHost()) && a.getPort() == b.getPort();
+    }
+
+    /**
+     * 上流へのリクエストをヘッジしながら送信し、先に得られた応答を書き込む
+     *
+     * @param exchange サーバーエクスチェンジ
+     * @param chain フィルターチェーン
+     * @param route ルート（タイムアウトのメタデータを参照）
+     * @param primaryUri ロードバランサーが選択したインスタンスのURI
+     * @param hedgeUri ヘッジ先インスタンスのURI
+     * @param state ルートごとのヘッジ状態
+     * @return 処理完了を表すMono
+     */
+    private Mono<Void> hedge(ServerWebExchange exchange, GatewayFilterChain chain, Route route,
+                             URI primaryUri, URI hedgeUri, HedgeState state) {
+        // 以降のルーティングフィルター（NettyRoutingFilter等）をスキップさせる
+        setAlreadyRouted(exchange);
+
+        HttpMethod method = exchange.getRequest().getMethod();
+        HttpHeaders headers = HttpHeaders.writableHttpHeaders(
+                HttpHeadersFilter.filterRequest(headersFiltersProvider.getIfAvailable(List::of), exchange));
+        if (!exchange.getAttributeOrDefault(PRESERVE_HOST_HEADER_ATTRIBUTE, false)) {
+            headers.remove(HttpHeaders.HOST);
+        }
+
+        Duration delay = state.hedgeDelay();
+        int maxBodySize = (int) Math.min(state.config.getMaxBodySize().toBytes(), Integer.MAX_VALUE);
+        WebClient client = webClientFor(route);
+        Duration responseTimeout = responseTimeout(route);
+
+        // 遅延の基準はプライマリ試行自身のレイテンシとする（ヘッジに負けてキャンセルされた場合は
+        // その時点までの経過時間）。採用された応答の時間で記録すると、遅延が徐々に短くなるため
+        Mono<Attempt> primaryAttempt = Mono.defer(() -> {
+                    long startTime = System.nanoTime();
+                    return send(client, method, primaryUri, headers, maxBodySize, responseTimeout)
+                            .doFinally(signal -> state.latency.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS));
+                })
+                .map(entity -> new Attempt(entity, false));
+        Mono<Attempt> hedgeAttempt = Mono.delay(delay)
+                .filter(tick -> state.tryAcquireHedge())
+                .flatMap(tick -> {
+                    logger.debug("{}ms以内に応答がないためヘッジリクエストを送信: {}", delay.toMillis(), hedgeUri);
+                    state.hedgesSent.increment();
+                    return send(client, method, hedgeUri, headers, maxBodySize, responseTimeout);
+                })
+                .map(entity -> new Attempt(entity, true));
+
+        // 先に応答した方を採用し、もう一方はキャンセルされる
+        return Mono.firstWithValue(primaryAttempt, hedgeAttempt)
+                .onErrorMap(NoSuchElementException.class, HedgeGatewayFilterFactory::firstAttemptError)
+                .onErrorMap(TimeoutException.class,
+                        e -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, e.getMessage(), e))
+                .flatMap(attempt -> {
+                    if (attempt.hedge()) {
+                        state.hedgesWon.increment();
+                        logger.debug("ヘッジリクエストの応答を採用しました: {}", hedgeUri);
+                    }
+                    if (attempt.oversized()) {
+                        logger.debug("レスポンスボディが上限（{}バイト）を超えたため通常のルーティングで再送します: {}",
+                                maxBodySize, exchange.getRequest().getURI());
+                        state.onOversizedResend();
+                        removeAlreadyRouted(exchange);
+                        return chain.filter(exchange);
+                    }
+                    return writeResponse(exchange, attempt.entity()).then(chain.filter(exchange));
+                });
+    }
+
+    /**
+     * 全試行が失敗した場合のNoSuchElementExceptionから、最初に発生したエラーを取り出す
+     *
+     * Mono.firstWithValueは各試行のエラーを複合例外として原因に保持するため、
+     * そのうち最初のエラー（ヘッジ未送信の場合はプライマリのエラー）を上流のエラーとして伝播させます。
+     *
+     * @param e Mono.firstWithValueのエラー
+     * @return 最初に発生したエラー（取り出せない場合は元の例外）
+     */
+    static Throwable firstAttemptError(NoSuchElementException e) {
+        if (e.getCause() == null) {
+            return e;
+        }
+        return Exceptions.unwrapMultiple(e.getCause()).stream()
+                .filter(error -> !(error instanceof NoSuchElementException))
+                .findFirst()
+                .orElse(e);
+    }
+
+    /**
+     * ルートのconnect-timeoutメタデータを適用したWebClientを取得する
+     *
+     * NettyRoutingFilterと同様に、メタデータがあればHttpClientの接続タイムアウトを上書きします
+     * （コネクションプールは共有されます）。WebClientはタイムアウト値ごとに再利用します。
+     *
+     * @param route ルート
+     * @return 送信に使用するWebClient
+     */
+    private WebClient webClientFor(Route route) {
+        Object connectTimeout = route.getMetadata().get(CONNECT_TIMEOUT_ATTR);
+        if (connectTimeout == null) {
+            return webClient;
+        }
+        int connectTimeoutMillis = connectTimeout instanceof Number number
+                ? number.intValue()
+                : Integer.parseInt(connectTimeout.toString());
+        return connectTimeoutClients.computeIfAbsent(connectTimeoutMillis, millis -> webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(
+                        httpClient.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, millis)))
+                .build());
+    }
+
+    /**
+     * 1回の試行に適用するレスポンスタイムアウトを取得する
+     *
+     * ルートのresponse-timeoutメタデータ（ミリ秒。負の値で無効）を優先し、
+     * なければspring.cloud.gateway.httpclient.response-timeoutを使用します。
+     *
+     * @param route ルート
+     * @return レスポンスタイムアウト（無効の場合はnull）
+     */
+    private Duration responseTimeout(Route route) {
+        Object responseTimeout = route.getMetadata().get(RESPONSE_TIMEOUT_ATTR);
+        if (responseTimeout != null) {
+            long millis = responseTimeout instanceof Number number
+                    ? number.longValue()
+                    : Long.parseLong(responseTimeout.toString());
+            return millis >= 0 ? Duration.ofMillis(millis) : null;
+        }
+        return httpClientProperties.getResponseTimeout();
+    }
+
+    /**
+     * 上流にリクエストを送信し、ボディをバッファリングした応答を取得する
+     *
+     * レスポンスタイムアウトはボディのバッファリング完了までを対象とし、
+     * ヘッジの場合はヘッジ遅延の経過後（送信時点）から計測します。
+     *
+     * @param client 送信に使用するWebClient
+     * @param method HTTPメソッド
+     * @param uri 送信先URI
+     * @param headers リクエストヘッダー
+     * @param maxBodySize バッファリングするボディの上限（バイト）
+     * @param responseTimeout レスポンスタイムアウト（nullの場合は無効）
+     * @return 上流の応答（ボディが上限を超えた場合はボディなしのOptional.empty()）
+     */
+    private Mono<Optional<ResponseEntity<byte[]>>> send(WebClient client, HttpMethod method, URI uri, HttpHeaders headers,
+                                                        int maxBodySize, Duration responseTimeout) {
+        Mono<Optional<ResponseEntity<byte[]>>> attempt = client.method(method)
+                .uri(uri)
+                .headers(httpHeaders -> httpHeaders.addAll(headers))
+                .exchangeToMono(response -> DataBufferUtils.join(response.bodyToFlux(DataBuffer.class), maxBodySize)
+                        .map(buffer -> {
+                            byte[] bytes = new byte[buffer.readableByteCount()];
+                            buffer.read(bytes);
+                            DataBufferUtils.release(buffer);
+                            return bytes;
+                        })
+                        .map(body -> new ResponseEntity<>(body, response.headers().asHttpHeaders(), response.statusCode()))
+                        .defaultIfEmpty(new ResponseEntity<>(response.headers().asHttpHeaders(), response.statusCode()))
+                        .map(Optional::of)
+                        .onErrorResume(DataBufferLimitException.class, e -> Mono.just(Optional.empty())));
+        if (responseTimeout == null) {
+            return attempt;
+        }
+        return attempt.timeout(responseTimeout,
+                Mono.error(new TimeoutException("Response took longer than timeout: " + responseTimeout)));
+    }
+
+    /**
+     * 採用した上流の応答をクライアントへのレスポンスに書き込む
+     *
+     * @param exchange サーバーエクスチェンジ
+     * @param entity 上流の応答
+     * @return 書き込み完了を表すMono
+     */
+    private Mono<Void> writeResponse(ServerWebExchange exchange, ResponseEntity<byte[]> entity) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders filtered = HttpHeaders.writableHttpHeaders(HttpHeadersFilter.filter(
+                headersFiltersProvider.getIfAvailable(List::of), entity.getHeaders(), exchange, HttpHeadersFilter.Type.RESPONSE));
+        // ボディはバッファリング済みのため、チャンク転送の指定は引き継がない
+        filtered.remove(HttpHeaders.TRANSFER_ENCODING);
+
+        String contentType = filtered.getFirst(HttpHeaders.CONTENT_TYPE);
+        if (contentType != null) {
+            exchange.getAttributes().put(ORIGINAL_RESPONSE_CONTENT_TYPE_ATTR, contentType);
+        }
+        response.setStatusCode(entity.getStatusCode());
+        response.getHeaders().putAll(filtered);
+
+        byte[] body = entity.getBody();
+        return response.writeWith(body == null
+                ? Mono.empty()
+                : Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * 上流への1回の試行結果
+     *
+     * @param response 上流の応答（ボディが上限を超えた場合は空）
+     * @param hedge ヘッジリクエストの応答の場合true
+     */
+    private record Attempt(Optional<ResponseEntity<byte[]>> response, boolean hedge) {
+
+        ResponseEntity<byte[]> entity() {
+            return response.orElseThrow();
+        }
+
+        boolean oversized() {
+            return response.isEmpty();
+        }
+    }
+
+    /**
+     * ルートごとのヘッジ状態（予算、レイテンシ、メトリクス）
+     */
+    static class HedgeState {
+
+        /**
+         * ヘッジ1回分のトークン（固定小数点）
+         */
+        private static final long TOKEN = 1000;
+
+        /**
+         * ヘッジ遅延の再計算間隔
+         */
+        private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final Config config;
+        private final LongSupplier nanoClock;
+        private final long depositPerRequest;
+        private final long maxTokens;
+        private final AtomicLong tokens;
+
+        private final Timer latency;
+        private final Counter hedgesSent;
+        private final Counter hedgesWon;
+        private final Counter budgetExhausted;
+        private final Counter fallbacks;
+        private final Counter resends;
+
+        private volatile boolean oversizedRoute;
+
+        private volatile Duration cachedDelay;
+        private volatile long delayComputedAt;
+
+        HedgeState(Config config, MeterRegistry meterRegistry) {
+            this(config, meterRegistry, System::nanoTime);
+        }
+
+        HedgeState(Config config, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+            this.config = config;
+            this.nanoClock = nanoClock;
+            this.depositPerRequest = Math.round(config.getBudgetPercent() / 100.0 * TOKEN);
+            this.maxTokens = config.getBudgetBurst() * TOKEN;
+            this.tokens = new AtomicLong(maxTokens);
+            this.cachedDelay = config.getInitialDelay();
+            this.delayComputedAt = nanoClock.getAsLong();
+
+            String routeId = config.getRouteId() != null ? config.getRouteId() : "unknown";
+            this.latency = Timer.builder("gateway.hedge.upstream.latency")
+                    .description("Latency of the primary upstream attempt on hedged routes")
+                    .tag("route", routeId)
+                    .publishPercentiles(config.getPercentile())
+                    .register(meterRegistry);
+            this.hedgesSent = Counter.builder("gateway.hedge.sent")
+                    .description("Number of hedge requests sent")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            this.hedgesWon = Counter.builder("gateway.hedge.won")
+                    .description("Number of hedge requests whose response was used")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            this.budgetExhausted = Counter.builder("gateway.hedge.budget.exhausted")
+                    .description("Number of due hedges skipped because the hedge budget was exhausted")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            this.fallbacks = Counter.builder("gateway.hedge.fallback")
+                    .description("Number of requests routed without hedging because no hedge budget was left")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            this.resends = Counter.builder("gateway.hedge.resend")
+                    .description("Number of requests re-sent through normal routing because the body exceeded the buffer limit")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * リクエストごとにヘッジ予算を積み立てる
+         */
+        void onRequest() {
+            tokens.getAndUpdate(current -> Math.min(maxTokens, current + depositPerRequest));
+        }
+
+        /**
+         * ヘッジ予算が1回分以上残っているかを確認する（消費はしない）
+         *
+         * @return 予算が残っている場合true
+         */
+        boolean hasHedgeBudget() {
+            return tokens.get() >= TOKEN;
+        }
+
+        /**
+         * ヘッジ予算を1回分消費する
+         *
+         * ヘッジ遅延に達した時点で呼び出し、予算不足の場合のみ
+         * gateway.hedge.budget.exhausted を加算します。
+         *
+         * @return 予算が残っていた場合true
+         */
+        boolean tryAcquireHedge() {
+            long current;
+            do {
+                current = tokens.get();
+                if (current < TOKEN) {
+                    budgetExhausted.increment();
+                    return false;
+                }
+            } while (!tokens.compareAndSet(current, current - TOKEN));
+            return true;
+        }
+
+        /**
+         * ボディが上限を超えたための再送を記録する
+         *
+         * 再送は上流への追加リクエストのため、ヘッジ1回分を予算から差し引きます
+         * （予算が残っていない場合は負になり、以降の積み立てで返済されます）。
+         * また、以降そのルートではヘッジを行いません。
+         */
+        void onOversizedResend() {
+            tokens.addAndGet(-TOKEN);
+            resends.increment();
+            if (!oversizedRoute) {
+                oversizedRoute = true;
+                logger.info("ルート {} のレスポンスボディが上限（{}）を超えたため、以降のヘッジを無効にします",
+                        config.getRouteId(), config.getMaxBodySize());
+            }
+        }
+
+        /**
+         * 上限を超えるボディを返したことがあるルートかどうか
+         *
+         * @return 以降のヘッジを行わない場合true
+         */
+        boolean isOversizedRoute() {
+            return oversizedRoute;
+        }
+
+        /**
+         * 観測レイテンシのパーセンタイルからヘッジ遅延を求める
+         *
+         * @return ヘッジ遅延
+         */
+        Duration hedgeDelay() {
+            long now = nanoClock.getAsLong();
+            if (now - delayComputedAt < DELAY_REFRESH_NANOS) {
+                return cachedDelay;
+            }
+            delayComputedAt = now;
+
+            if (latency.count() < config.getMinSamples()) {
+                cachedDelay = config.getInitialDelay();
+                return cachedDelay;
+            }
+            for (ValueAtPercentile value : latency.takeSnapshot().percentileValues()) {
+                Duration observed = Duration.ofNanos((long) value.value(TimeUnit.NANOSECONDS));
+                cachedDelay = observed.compareTo(config.getMinDelay()) > 0 ? observed : config.getMinDelay();
+            }
+            return cachedDelay;
+        }
+    }
+
+    /**
+     * フィルター設定クラス
+     */
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+
+        /**
+         * ヘッジ遅延の基準とする観測レイテンシのパーセンタイル
+         */
+        private double percentile = 0.95;
+
+        /**
+         * 観測サンプルが少ない間に使用するヘッジ遅延
+         */
+        private Duration initialDelay = Duration.ofMillis(100);
+
+        /**
+         * ヘッジ遅延の下限
+         */
+        private Duration minDelay = Duration.ofMillis(10);
+
+        /**
+         * パーセンタイルを使用し始めるまでに必要なサンプル数
+         */
+        private long minSamples = 20;
+
+        /**
+         * リクエスト数に対するヘッジの上限（%）
+         */
+        private double budgetPercent = 5.0;
+
+        /**
+         * 予算として蓄積できるヘッジ回数の上限
+         */
+        private long budgetBurst = 10;
+
+        /**
+         * バッファリングするレスポンスボディの上限（超えた場合は通常のルーティングで再送し、以降はヘッジしない）
+         */
+        private DataSize maxBodySize = DataSize.ofKilobytes(256);
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public void setPercentile(double percentile) {
+            this.percentile = percentile;
+        }
+
+        public Duration getInitialDelay() {
+            return initialDelay;
+        }
+
+        public void setInitialDelay(Duration initialDelay) {
+            this.initialDelay = initialDelay;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public void setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+        }
+
+        public long getMinSamples() {
+            return minSamples;
+        }
+
+        public void setMinSamples(long minSamples) {
+            this.minSamples = minSamples;
+        }
+
+        public double getBudgetPercent() {
+            return budgetPercent;
+        }
+
+        public void setBudgetPercent(double budgetPercent) {
+            this.budgetPercent = budgetPercent;
+        }
+
+        public long getBudgetBurst() {
+            return budgetBurst;
+        }
+
+        public void setBudgetBurst(long budgetBurst) {
+            this.budgetBurst = budgetBurst;
+        }
+
+        public DataSize getMaxBodySize() {
+            return maxBodySize;
+        }
+
+        public void setMaxBodySize(DataSize maxBodySize) {
+            this.maxBodySize = maxBodySize;
+        }
+    }
+}
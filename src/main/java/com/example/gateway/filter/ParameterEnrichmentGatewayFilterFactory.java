@@ -45,7 +45,7 @@ public class ParameterEnrichmentGatewayFilterFactory
     /**
      * Gateway処理済みヘッダー
      */
-    private static final String GATEWAY_PROCESSED_HEADER = "X-Gateway-Processed";
+    static final String GATEWAY_PROCESSED_HEADER = "X-Gateway-Processed";
 
     public ParameterEnrichmentGatewayFilterFactory() {
         super(Config.class);
@@ -66,68 +66,66 @@ public class ParameterEnrichmentGatewayFilterFactory
             URI originalUri = exchange.getRequest().getURI();
             logger.debug("元のURI: {}", originalUri);
 
-            // 現在のクエリパラメータを取得（変更可能なコピーを作成）
-            MultiValueMap<String, String> queryParams = new org.springframework.util.LinkedMultiValueMap<>();
-            MultiValueMap<String, String> originalParams = UriComponentsBuilder.fromUri(originalUri).build().getQueryParams();
-            queryParams.addAll(originalParams);
-
-            // パラメータ補完処理
-            boolean modified = false;
-
-            // userNameパラメータの補完
-            if (!queryParams.containsKey("userName")) {
-                queryParams.add("userName", DEFAULT_USER_NAME);
-                modified = true;
-                logger.debug("userNameパラメータを補完: {}", DEFAULT_USER_NAME);
-            }
-
-            // timestampパラメータの補完
-            if (!queryParams.containsKey("timestamp")) {
-                String currentTimestamp = Instant.now().toString();
-                queryParams.add("timestamp", currentTimestamp);
-                modified = true;
-                logger.debug("timestampパラメータを補完: {}", currentTimestamp);
-            }
-
-            // sourceパラメータの設定（常に上書き）
-            queryParams.set("source", GATEWAY_SOURCE);
-            modified = true;
-            logger.debug("sourceパラメータを設定: {}", GATEWAY_SOURCE);
-
-            if (modified) {
-                // 新しいURIを構築（URLエンコーディング有効）
-                URI newUri = UriComponentsBuilder.fromUri(originalUri)
-                        .replaceQueryParams(queryParams)
-                        .encode()
-                        .build()
-                        .toUri();
-
-                logger.info("パラメータ補完後のURI: {}", newUri);
-
-                // 新しいリクエストを作成
-                ServerWebExchange modifiedExchange = exchange.mutate()
-                        .request(exchange.getRequest().mutate()
-                                .uri(newUri)
-                                .header(GATEWAY_PROCESSED_HEADER, "true")
-                                .build())
-                        .build();
-
-                logger.debug("ParameterEnrichmentFilter: 処理完了");
-                return chain.filter(modifiedExchange);
-            } else {
-                // パラメータの変更がない場合はヘッダーのみ追加
-                ServerWebExchange modifiedExchange = exchange.mutate()
-                        .request(exchange.getRequest().mutate()
-                                .header(GATEWAY_PROCESSED_HEADER, "true")
-                                .build())
-                        .build();
-
-                logger.debug("ParameterEnrichmentFilter: ヘッダーのみ追加");
-                return chain.filter(modifiedExchange);
-            }
+            // パラメータ補完処理（sourceは常に上書きされるため、URIは必ず再構築する）
+            MultiValueMap<String, String> queryParams = enrichQueryParams(originalUri);
+
+            // 新しいURIを構築（URLエンコーディング有効）
+            URI newUri = UriComponentsBuilder.fromUri(originalUri)
+                    .replaceQueryParams(queryParams)
+                    .encode()
+                    .build()
+                    .toUri();
+
+            logger.info("パラメータ補完後のURI: {}", newUri);
+
+            // 新しいリクエストを作成
+            ServerWebExchange modifiedExchange = exchange.mutate()
+                    .request(exchange.getRequest().mutate()
+                            .uri(newUri)
+                            .header(GATEWAY_PROCESSED_HEADER, "true")
+                            .build())
+                    .build();
+
+            logger.debug("ParameterEnrichmentFilter: 処理完了");
+            return chain.filter(modifiedExchange);
         };
     }
 
+    /**
+     * 補完後のクエリパラメータを生成する
+     * 
+     * RequestRewriteGatewayFilterFactoryからも利用され、
+     * 融合フィルターと単体フィルターで同一の補完結果を保証します。
+     * 
+     * @param originalUri 元のリクエストURI
+     * @return 補完済みのクエリパラメータ（変更可能なコピー）
+     */
+    static MultiValueMap<String, String> enrichQueryParams(URI originalUri) {
+        // 現在のクエリパラメータを取得（変更可能なコピーを作成）
+        MultiValueMap<String, String> queryParams = new org.springframework.util.LinkedMultiValueMap<>();
+        MultiValueMap<String, String> originalParams = UriComponentsBuilder.fromUri(originalUri).build().getQueryParams();
+        queryParams.addAll(originalParams);
+
+        // userNameパラメータの補完
+        if (!queryParams.containsKey("userName")) {
+            queryParams.add("userName", DEFAULT_USER_NAME);
+            logger.debug("userNameパラメータを補完: {}", DEFAULT_USER_NAME);
+        }
+
+        // timestampパラメータの補完
+        if (!queryParams.containsKey("timestamp")) {
+            String currentTimestamp = Instant.now().toString();
+            queryParams.add("timestamp", currentTimestamp);
+            logger.debug("timestampパラメータを補完: {}", currentTimestamp);
+        }
+
+        // sourceパラメータの設定（常に上書き）
+        queryParams.set("source", GATEWAY_SOURCE);
+        logger.debug("sourceパラメータを設定: {}", GATEWAY_SOURCE);
+
+        return queryParams;
+    }
+
     /**
      * フィルター設定クラス
      */
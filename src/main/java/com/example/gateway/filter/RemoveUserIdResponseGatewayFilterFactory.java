@@ -1,25 +1,50 @@
 package com.example.gateway.filter;
 
+import com.example.gateway.util.MediaTypes;
+import com.example.gateway.util.XxHash64;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyDecoder;
+import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyEncoder;
 import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyResponseBodyGatewayFilterFactory;
 import org.springframework.cloud.gateway.filter.factory.rewrite.RewriteFunction;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * レスポンスボディからuserIdフィールドを削除するGatewayフィルターファクトリー
  * 
  * このフィルターは、ModifyResponseBodyGatewayFilterFactoryを使用して
- * レスポンスJSONからuserIdフィールドを除去します。
+ * レスポンスからuserIdフィールドを除去します。JSONに加えてCBOR・Smile形式の
+ * レスポンスにも対応し、JSONを経由せずそれぞれの形式のまま書き換えます。
+ * ボディはbyte[]で受け取るため、Content-Encoding（gzip・deflate）のデコードと
+ * 書き換え後の再エンコードはこのフィルターで行います。
+ * 書き換え後のボディからETagを生成し、If-None-Matchが一致する場合は
+ * 304 Not Modifiedをボディなしで返します（GETのみ）。ETagはtimestampなど
+ * リクエストごとに変わるフィールドを除いて計算する弱いETagです。
  * 
  * @author Claude
  * @version 1.0.0
@@ -31,30 +56,96 @@ public class RemoveUserIdResponseGatewayFilterFactory extends AbstractGatewayFil
     
     private final ModifyResponseBodyGatewayFilterFactory modifyResponseBodyFilter;
     private final ObjectMapper objectMapper;
+    private final ObjectMapper cborMapper;
+    private final ObjectMapper smileMapper;
+    private final Map<String, MessageBodyDecoder> messageBodyDecoders;
+    private final Map<String, MessageBodyEncoder> messageBodyEncoders;
 
-    public RemoveUserIdResponseGatewayFilterFactory(ModifyResponseBodyGatewayFilterFactory modifyResponseBodyFilter) {
+    public RemoveUserIdResponseGatewayFilterFactory(ModifyResponseBodyGatewayFilterFactory modifyResponseBodyFilter,
+                                                    Set<MessageBodyDecoder> messageBodyDecoders,
+                                                    Set<MessageBodyEncoder> messageBodyEncoders) {
         super(Config.class);
         this.modifyResponseBodyFilter = modifyResponseBodyFilter;
         this.objectMapper = new ObjectMapper();
+        this.cborMapper = new CBORMapper();
+        this.smileMapper = new SmileMapper();
+        this.messageBodyDecoders = messageBodyDecoders.stream()
+                .collect(Collectors.toMap(MessageBodyDecoder::encodingType, Function.identity()));
+        this.messageBodyEncoders = messageBodyEncoders.stream()
+                .collect(Collectors.toMap(MessageBodyEncoder::encodingType, Function.identity()));
     }
 
     @Override
     public GatewayFilter apply(Config config) {
-        return modifyResponseBodyFilter.apply(c -> c.setRewriteFunction(String.class, String.class, new UserIdRemovalRewriteFunction()));
+        return modifyResponseBodyFilter.apply(c -> c.setRewriteFunction(byte[].class, byte[].class, new UserIdRemovalRewriteFunction(config)));
+    }
+
+    /**
+     * レスポンスのContent-Typeに対応するObjectMapperを選択する
+     * 
+     * CBOR・Smileはそれぞれの形式のままパース・書き出しを行い、
+     * JSONへの変換は行いません。それ以外はJSONとして扱います。
+     * 
+     * @param contentType レスポンスのContent-Type
+     * @return 対応するObjectMapper
+     */
+    private ObjectMapper mapperFor(MediaType contentType) {
+        if (contentType != null) {
+            if (MediaType.APPLICATION_CBOR.isCompatibleWith(contentType)) {
+                return cborMapper;
+            }
+            if (MediaTypes.APPLICATION_SMILE.isCompatibleWith(contentType)) {
+                return smileMapper;
+            }
+        }
+        return objectMapper;
     }
 
     /**
      * userIdフィールドを削除するRewriteFunction実装
      */
-    private class UserIdRemovalRewriteFunction implements RewriteFunction<String, String> {
-        
+    private class UserIdRemovalRewriteFunction implements RewriteFunction<byte[], byte[]> {
+
+        private final Config config;
+
+        UserIdRemovalRewriteFunction(Config config) {
+            this.config = config;
+        }
+
         @Override
-        public Publisher<String> apply(ServerWebExchange exchange, String originalResponseBody) {
+        public Publisher<byte[]> apply(ServerWebExchange exchange, byte[] originalResponseBody) {
+            // ボディなしのレスポンスに加え、304で空を返した場合もModifyResponseBodyの
+            // switchIfEmptyによりnullで再度呼び出されるため、そのまま空を返す
+            if (originalResponseBody == null) {
+                return Mono.empty();
+            }
+            ObjectMapper mapper = mapperFor(exchange.getResponse().getHeaders().getContentType());
+            String contentEncoding = contentEncoding(exchange);
+            Rewritten rewritten;
+            if (contentEncoding == null) {
+                rewritten = removeUserId(mapper, originalResponseBody);
+            } else {
+                rewritten = removeUserIdEncoded(mapper, contentEncoding, originalResponseBody);
+            }
+            if (config.isGenerateEtag()) {
+                return applyEtag(exchange, mapper, rewritten);
+            }
+            return Mono.just(rewritten.body());
+        }
+
+        /**
+         * レスポンスボディからuserIdフィールドを削除する
+         * 
+         * @param mapper レスポンス形式に対応するObjectMapper
+         * @param originalResponseBody 元のレスポンスボディ
+         * @return 修正後のレスポンスボディ（エラー時は元のボディ）
+         */
+        private Rewritten removeUserId(ObjectMapper mapper, byte[] originalResponseBody) {
             try {
-                logger.debug("元のレスポンスボディ: {}", originalResponseBody);
+                logger.debug("元のレスポンスボディ: {}", describe(mapper, originalResponseBody));
                 
-                // JSONをパース
-                JsonNode jsonNode = objectMapper.readTree(originalResponseBody);
+                // レスポンス形式のままパース
+                JsonNode jsonNode = mapper.readTree(originalResponseBody);
                 
                 // ObjectNodeの場合のみuserIdを削除
                 if (jsonNode.isObject()) {
@@ -68,26 +159,192 @@ public class RemoveUserIdResponseGatewayFilterFactory extends AbstractGatewayFil
                         logger.debug("userIdフィールドが見つかりませんでした");
                     }
                     
-                    // 修正されたJSONを文字列に変換
-                    String modifiedResponseBody = objectMapper.writeValueAsString(objectNode);
-                    logger.debug("修正後のレスポンスボディ: {}", modifiedResponseBody);
+                    // 修正されたノードを元の形式で書き出し
+                    byte[] modifiedResponseBody = mapper.writeValueAsBytes(objectNode);
+                    logger.debug("修正後のレスポンスボディ: {}", describe(mapper, modifiedResponseBody));
                     
-                    return Mono.just(modifiedResponseBody);
+                    return new Rewritten(modifiedResponseBody, objectNode);
                 } else {
                     // オブジェクトでない場合はそのまま返す
-                    logger.debug("レスポンスボディがJSONオブジェクトではありません");
-                    return Mono.just(originalResponseBody);
+                    logger.debug("レスポンスボディがオブジェクトではありません");
+                    return Rewritten.unchanged(originalResponseBody);
                 }
                 
             } catch (JsonProcessingException e) {
-                logger.error("JSONパースエラー: {}", e.getMessage());
+                logger.error("パースエラー（{}）: {}", mapper.getFactory().getFormatName(), e.getMessage());
                 // エラーの場合は元のレスポンスボディをそのまま返す
-                return Mono.just(originalResponseBody);
+                return Rewritten.unchanged(originalResponseBody);
             } catch (Exception e) {
                 logger.error("予期せぬエラー: {}", e.getMessage(), e);
-                return Mono.just(originalResponseBody);
+                return Rewritten.unchanged(originalResponseBody);
+            }
+        }
+
+        /**
+         * Content-Encodingでエンコードされたボディをデコードしてから書き換え、再エンコードする
+         * 
+         * @param mapper レスポンス形式に対応するObjectMapper
+         * @param contentEncoding レスポンスのContent-Encoding
+         * @param originalResponseBody エンコードされた元のレスポンスボディ
+         * @return 再エンコードした修正後のレスポンスボディ（書き換えなし・エラー時は元のボディ）
+         */
+        private Rewritten removeUserIdEncoded(ObjectMapper mapper, String contentEncoding, byte[] originalResponseBody) {
+            byte[] decoded;
+            try {
+                decoded = messageBodyDecoders.get(contentEncoding).decode(originalResponseBody);
+            } catch (Exception e) {
+                logger.error("レスポンスボディのデコードに失敗しました（{}）: {}", contentEncoding, e.getMessage());
+                return Rewritten.unchanged(originalResponseBody);
+            }
+            Rewritten modified = removeUserId(mapper, decoded);
+            if (modified.node() == null) {
+                // 書き換えなしの場合は再エンコードせず元のボディを返す
+                return Rewritten.unchanged(originalResponseBody);
+            }
+            byte[] encoded = messageBodyEncoders.get(contentEncoding)
+                    .encode(DefaultDataBufferFactory.sharedInstance.wrap(modified.body()));
+            return new Rewritten(encoded, modified.node());
+        }
+
+        /**
+         * 書き換え後のボディからETagを生成し、条件付きGETを処理する
+         * 
+         * 上流のETagは書き換えにより一致しなくなるため、書き換え後の内容の
+         * xxHash64から弱いETagを生成して置き換えます。If-None-Matchが一致した場合は
+         * ステータスを304に変更し、ボディを返しません。
+         *
+         * ETagの計算では、リクエストごとに変わるフィールド（RequestRewriteが付与する
+         * timestampなど、{@link Config#getEtagIgnoredFields()}）を除外します。
+         * そのためボディはバイト単位では一致しない場合があり、ETagは弱いETagとします。
+         * HEADの応答にはボディがないためETagを生成できず、対象はGETのみです。
+         *
+         * @param exchange サーバーエクスチェンジ
+         * @param mapper レスポンス形式に対応するObjectMapper
+         * @param rewritten 書き換え結果
+         * @return 送信するレスポンスボディ（304の場合は空）
+         */
+        private Mono<byte[]> applyEtag(ServerWebExchange exchange, ObjectMapper mapper, Rewritten rewritten) {
+            ServerHttpResponse response = exchange.getResponse();
+            byte[] body = rewritten.body();
+            if (!HttpMethod.GET.equals(exchange.getRequest().getMethod())
+                    || response.getStatusCode() == null || !response.getStatusCode().is2xxSuccessful()) {
+                return Mono.just(body);
+            }
+
+            String etag = etagFor(mapper, rewritten);
+            response.getHeaders().setETag(etag);
+
+            if (matchesIfNoneMatch(exchange.getRequest().getHeaders().getIfNoneMatch(), etag)) {
+                logger.debug("If-None-Matchが一致したため304を返します: {}", etag);
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                return Mono.empty();
+            }
+            return Mono.just(body);
+        }
+
+        /**
+         * リクエストごとに変わるフィールドを除いた内容からETagを生成する
+         * 
+         * @param mapper レスポンス形式に対応するObjectMapper
+         * @param rewritten 書き換え結果
+         * @return 弱いETag（書き換えなしの場合はボディ全体から生成）
+         */
+        private String etagFor(ObjectMapper mapper, Rewritten rewritten) {
+            if (rewritten.node() == null) {
+                return toEtag(rewritten.body());
+            }
+            ObjectNode validator = rewritten.node().deepCopy();
+            validator.remove(config.getEtagIgnoredFields());
+            try {
+                return toEtag(mapper.writeValueAsBytes(validator));
+            } catch (JsonProcessingException e) {
+                logger.warn("ETag計算用の書き出しに失敗したため、ボディ全体から生成します: {}", e.getMessage());
+                return toEtag(rewritten.body());
+            }
+        }
+    }
+
+    /**
+     * userId削除後のボディと、書き換えたノード
+     *
+     * @param body 送信するボディ（Content-Encoding適用後）
+     * @param node userId削除後のノード（書き換えなしの場合はnull）
+     */
+    private record Rewritten(byte[] body, ObjectNode node) {
+
+        static Rewritten unchanged(byte[] body) {
+            return new Rewritten(body, null);
+        }
+    }
+
+    /**
+     * デコード・再エンコードが可能なレスポンスのContent-Encodingを取得する
+     * 
+     * @param exchange サーバーエクスチェンジ
+     * @return Content-Encoding（エンコードされていない、または未対応の場合はnull）
+     */
+    private String contentEncoding(ServerWebExchange exchange) {
+        for (String encoding : exchange.getResponse().getHeaders().getOrEmpty(HttpHeaders.CONTENT_ENCODING)) {
+            if (messageBodyDecoders.containsKey(encoding) && messageBodyEncoders.containsKey(encoding)) {
+                return encoding;
+            }
+            if (!encoding.equalsIgnoreCase("identity")) {
+                logger.warn("未対応のContent-Encodingのため、そのまま書き換えを試みます: {}", encoding);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * ログ出力用にレスポンスボディを文字列化する
+     * 
+     * @param mapper レスポンス形式に対応するObjectMapper
+     * @param body レスポンスボディ
+     * @return JSONの場合は本文、バイナリ形式の場合は形式名とサイズ
+     */
+    private String describe(ObjectMapper mapper, byte[] body) {
+        if (mapper == objectMapper) {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+        return "<" + mapper.getFactory().getFormatName() + " " + body.length + " bytes>";
+    }
+
+    /**
+     * バイト列から弱いETagを生成する
+     * 
+     * @param body ETag計算対象のバイト列
+     * @return W/ プレフィックス付きの、ダブルクォートで囲まれたETag
+     */
+    static String toEtag(byte[] body) {
+        return String.format("W/\"%016x\"", XxHash64.hash(body));
+    }
+
+    /**
+     * If-None-Matchヘッダーの値がETagに一致するかを判定する
+     * 
+     * If-None-Matchは弱い比較（双方の W/ プレフィックスを無視）で判定します。
+     * 
+     * @param ifNoneMatch If-None-Matchヘッダーの値
+     * @param etag 現在のETag
+     * @return 一致する場合true
+     */
+    static boolean matchesIfNoneMatch(List<String> ifNoneMatch, String etag) {
+        String opaqueTag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (stripWeakPrefix(value).equals(opaqueTag)) {
+                return true;
             }
         }
+        return false;
+    }
+
+    private static String stripWeakPrefix(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
     }
 
     /**
@@ -99,6 +356,16 @@ public class RemoveUserIdResponseGatewayFilterFactory extends AbstractGatewayFil
          */
         private boolean enableDebugLogging = false;
 
+        /**
+         * 書き換え後のボディからETagを生成し、条件付きGETに304で応答するかどうか
+         */
+        private boolean generateEtag = true;
+
+        /**
+         * ETagの計算から除外する、リクエストごとに変わるフィールド
+         */
+        private List<String> etagIgnoredFields = List.of("timestamp");
+
         public boolean isEnableDebugLogging() {
             return enableDebugLogging;
         }
@@ -106,5 +373,21 @@ public class RemoveUserIdResponseGatewayFilterFactory extends AbstractGatewayFil
         public void setEnableDebugLogging(boolean enableDebugLogging) {
             this.enableDebugLogging = enableDebugLogging;
         }
+
+        public boolean isGenerateEtag() {
+            return generateEtag;
+        }
+
+        public void setGenerateEtag(boolean generateEtag) {
+            this.generateEtag = generateEtag;
+        }
+
+        public List<String> getEtagIgnoredFields() {
+            return etagIgnoredFields;
+        }
+
+        public void setEtagIgnoredFields(List<String> etagIgnoredFields) {
+            this.etagIgnoredFields = etagIgnoredFields;
+        }
     }
 }
\ No newline at end of file
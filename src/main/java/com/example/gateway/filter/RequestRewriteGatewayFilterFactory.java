@@ -0,0 +1,136 @@
+package com.example.gateway.filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.addOriginalRequestUrl;
+
+/**
+ * リクエスト側の書き換えを1回のmutationで行う融合Gatewayフィルターファクトリー
+ *
+ * StripPrefix と ParameterEnrichment を連続して適用した場合と同一の結果を、
+ * リクエスト・エクスチェンジの再構築を1回だけ行うことで生成します。
+ * 1. パスの先頭から指定数のセグメントを除去（StripPrefixと同じ規則）
+ * 2. クエリパラメータの補完（ParameterEnrichmentと同じ規則）
+ * 3. リクエストヘッダーに X-Gateway-Processed: true を追加
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+@Component
+public class RequestRewriteGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestRewriteGatewayFilterFactory.Config> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestRewriteGatewayFilterFactory.class);
+
+    /**
+     * 除去するパスセグメント数の設定キー
+     */
+    public static final String PARTS_KEY = "parts";
+
+    public RequestRewriteGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of(PARTS_KEY);
+    }
+
+    /**
+     * Gatewayフィルターを適用する
+     *
+     * @param config フィルター設定
+     * @return Gatewayフィルター
+     */
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            logger.debug("RequestRewriteFilter: リクエスト処理開始");
+
+            URI originalUri = exchange.getRequest().getURI();
+            addOriginalRequestUrl(exchange, originalUri);
+            logger.debug("元のURI: {}", originalUri);
+
+            // パス・クエリを同時に書き換えた新しいURIを構築（URLエンコーディング有効）
+            String strippedPath = stripPrefix(originalUri.getRawPath(), config.getParts());
+            MultiValueMap<String, String> queryParams =
+                    ParameterEnrichmentGatewayFilterFactory.enrichQueryParams(originalUri);
+            URI newUri = UriComponentsBuilder.fromUri(originalUri)
+                    .replacePath(strippedPath)
+                    .replaceQueryParams(queryParams)
+                    .encode()
+                    .build()
+                    .toUri();
+
+            logger.info("リクエスト書き換え後のURI: {}", newUri);
+
+            // リクエスト・エクスチェンジの再構築は1回のみ
+            ServerWebExchange modifiedExchange = exchange.mutate()
+                    .request(exchange.getRequest().mutate()
+                            .uri(newUri)
+                            .header(ParameterEnrichmentGatewayFilterFactory.GATEWAY_PROCESSED_HEADER, "true")
+                            .build())
+                    .build();
+            modifiedExchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, newUri);
+
+            logger.debug("RequestRewriteFilter: 処理完了");
+            return chain.filter(modifiedExchange);
+        };
+    }
+
+    /**
+     * パスの先頭から指定数のセグメントを除去する
+     *
+     * StripPrefixGatewayFilterFactoryと同じ規則で、
+     * 末尾スラッシュも維持します。
+     *
+     * @param rawPath エンコード済みのパス
+     * @param parts 除去するセグメント数
+     * @return 除去後のパス
+     */
+    static String stripPrefix(String rawPath, int parts) {
+        String[] originalParts = StringUtils.tokenizeToStringArray(rawPath, "/");
+
+        StringBuilder newPath = new StringBuilder("/");
+        for (int i = parts; i < originalParts.length; i++) {
+            if (newPath.length() > 1) {
+                newPath.append('/');
+            }
+            newPath.append(originalParts[i]);
+        }
+        if (newPath.length() > 1 && rawPath.endsWith("/")) {
+            newPath.append('/');
+        }
+        return newPath.toString();
+    }
+
+    /**
+     * フィルター設定クラス
+     */
+    public static class Config {
+        /**
+         * パスの先頭から除去するセグメント数
+         */
+        private int parts = 1;
+
+        public int getParts() {
+            return parts;
+        }
+
+        public void setParts(int parts) {
+            this.parts = parts;
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.example.gateway.handler;
 
 import com.example.gateway.model.UserInfoResponse;
+import com.example.gateway.util.MediaTypes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,6 +22,7 @@ import java.util.Map;
  * このハンドラーは、/api/user-info エンドポイントを提供し、
  * Gatewayからのリクエストを処理します。フィルターによって補完された
  * パラメータを含むレスポンスを返します。
+ * レスポンス形式はAcceptヘッダーによりJSON・CBOR・Smileから選択されます。
  * 
  * @author Claude
  * @version 1.0.0
@@ -50,7 +56,8 @@ public class UserInfoHandler {
         if (userId == null || userId.trim().isEmpty()) {
             logger.warn("userIdが指定されていません");
             return ServerResponse.badRequest()
-                    .contentType(MediaType.APPLICATION_JSON)
+                    .contentType(negotiateMediaType(request))
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
                     .bodyValue(Map.of("error", "userId is required"));
         }
 
@@ -67,7 +74,8 @@ public class UserInfoHandler {
         logger.info("レスポンス作成完了: {}", response);
 
         return ServerResponse.ok()
-                .contentType(MediaType.APPLICATION_JSON)
+                .contentType(negotiateMediaType(request))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
                 .bodyValue(response);
     }
 
@@ -85,7 +93,33 @@ public class UserInfoHandler {
         );
 
         return ServerResponse.ok()
-                .contentType(MediaType.APPLICATION_JSON)
+                .contentType(negotiateMediaType(request))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
                 .bodyValue(healthResponse);
     }
+
+    /**
+     * Acceptヘッダーからレスポンスのメディアタイプを決定する
+     * 
+     * Acceptヘッダーの品質値の高い順に、JSON・CBOR・Smileのうち
+     * 最初に適合する形式を選択します。適合しない場合はJSONを返します。
+     * 形式がAcceptヘッダーによって変わるため、呼び出し側のレスポンスには
+     * Vary: Accept を付与します（キャッシュが異なる形式を取り違えないため）。
+     * 
+     * @param request サーバーリクエスト
+     * @return レスポンスのメディアタイプ
+     */
+    private MediaType negotiateMediaType(ServerRequest request) {
+        List<MediaType> acceptableTypes = new ArrayList<>(request.headers().accept());
+        // MediaTypeの具体性比較では品質値が優先される
+        MimeTypeUtils.sortBySpecificity(acceptableTypes);
+        for (MediaType acceptable : acceptableTypes) {
+            for (MediaType producible : MediaTypes.USER_INFO_MEDIA_TYPES) {
+                if (acceptable.isCompatibleWith(producible)) {
+                    return producible;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.example.gateway.loadbalancer;
+
+import com.example.gateway.util.XxHash64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * キーの一貫性ハッシュでインスタンスを選択するロードバランサー
+ *
+ * 指定したクエリパラメータ（デフォルト: userId）の値をキーとして、
+ * ランデブーハッシュ（Highest Random Weight）でインスタンスを選択します。
+ * 同じキーは常に同じインスタンスに振り分けられ、インスタンスの追加・削除時に
+ * 振り分け先が変わるキーは、追加・削除されたインスタンスに関係するものだけです。
+ *
+ * キーを持たないリクエストはラウンドロビンで振り分けます。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+public class ConsistentHashLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsistentHashLoadBalancer.class);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final String serviceId;
+    private final String keyParam;
+    private final AtomicInteger position = new AtomicInteger();
+
+    public ConsistentHashLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                      String serviceId, String keyParam) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.keyParam = keyParam;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        String key = extractKey(request);
+        return supplier.get(request).next().map(instances -> choose(instances, key));
+    }
+
+    /**
+     * インスタンス一覧からキーに対応するインスタンスを選択する
+     *
+     * @param instances インスタンス一覧
+     * @param key ハッシュキー（nullの場合はラウンドロビン）
+     * @return 選択結果
+     */
+    Response<ServiceInstance> choose(List<ServiceInstance> instances, String key) {
+        if (instances.isEmpty()) {
+            logger.warn("利用可能なインスタンスがありません: {}", serviceId);
+            return new EmptyResponse();
+        }
+
+        if (key == null) {
+            int index = Math.floorMod(position.getAndIncrement(), instances.size());
+            return new DefaultResponse(instances.get(index));
+        }
+
+        // 各インスタンスについて (キー, インスタンス) のハッシュを計算し、最大のものを選択
+        ServiceInstance selected = null;
+        long highestScore = 0;
+        for (ServiceInstance instance : instances) {
+            long score = score(key, instance);
+            if (selected == null || Long.compareUnsigned(score, highestScore) > 0) {
+                selected = instance;
+                highestScore = score;
+            }
+        }
+        logger.debug("{}={} を {}:{} に振り分けます", keyParam, key, selected.getHost(), selected.getPort());
+        return new DefaultResponse(selected);
+    }
+
+    /**
+     * キーに対するスコアの高い順にインスタンスを並べる
+     *
+     * 先頭は {@link #choose(List, String)} が選択するインスタンスと一致し、
+     * 2番目は先頭のインスタンスが削除された場合にそのキーが移るインスタンスです。
+     * ヘッジ先など、プライマリ以外でキャッシュの局所性を保ちたい場合に使用します。
+     *
+     * @param instances インスタンス一覧
+     * @param key ハッシュキー
+     * @return スコアの降順に並べたインスタンス一覧
+     */
+    public static List<ServiceInstance> rank(List<ServiceInstance> instances, String key) {
+        return instances.stream()
+                .map(instance -> Map.entry(score(key, instance), instance))
+                .sorted((a, b) -> Long.compareUnsigned(b.getKey(), a.getKey()))
+                .map(Map.Entry::getValue)
+                .toList();
+    }
+
+    /**
+     * キーとインスタンスの組み合わせのスコアを計算する
+     *
+     * @param key ハッシュキー
+     * @param instance インスタンス
+     * @return スコア
+     */
+    private static long score(String key, ServiceInstance instance) {
+        String combined = key + '\n' + instance.getHost() + ':' + instance.getPort();
+        return XxHash64.hash(combined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * リクエストURLのクエリパラメータからハッシュキーを取得する
+     *
+     * @param request ロードバランサーリクエスト
+     * @return ハッシュキー（存在しない場合はnull）
+     */
+    private String extractKey(Request request) {
+        if (!(request.getContext() instanceof RequestDataContext context)
+                || context.getClientRequest() == null || context.getClientRequest().getUrl() == null) {
+            return null;
+        }
+        String value = UriComponentsBuilder.fromUri(context.getClientRequest().getUrl())
+                .build()
+                .getQueryParams()
+                .getFirst(keyParam);
+        return (value == null || value.isEmpty()) ? null : value;
+    }
+}
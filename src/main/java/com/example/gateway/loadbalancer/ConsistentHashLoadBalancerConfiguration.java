@@ -0,0 +1,49 @@
+package com.example.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * 一貫性ハッシュロードバランサーのクライアント別設定
+ *
+ * {@code @LoadBalancerClient} の configuration として指定され、
+ * クライアントごとの子コンテキストで読み込まれます。メインコンテキストの
+ * コンポーネントスキャン対象にならないよう、{@code @Configuration} は付与しません。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+public class ConsistentHashLoadBalancerConfiguration {
+
+    /**
+     * ハッシュキーとするクエリパラメータ名の設定キー
+     */
+    public static final String KEY_PARAM_PROPERTY = "gateway.loadbalancer.consistent-hash.key-param";
+
+    /**
+     * ハッシュキーのデフォルトのクエリパラメータ名
+     */
+    public static final String DEFAULT_KEY_PARAM = "userId";
+
+    /**
+     * 一貫性ハッシュロードバランサーを作成する
+     *
+     * @param environment 環境設定
+     * @param loadBalancerClientFactory ロードバランサークライアントファクトリー
+     * @return ロードバランサー
+     */
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> consistentHashLoadBalancer(Environment environment,
+                                                                           LoadBalancerClientFactory loadBalancerClientFactory) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        String keyParam = environment.getProperty(KEY_PARAM_PROPERTY, DEFAULT_KEY_PARAM);
+        return new ConsistentHashLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId,
+                keyParam);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.gateway.monitor;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * イベントループの診断情報を公開するActuatorエンドポイント
+ *
+ * /actuator/eventloops で、ループごとのスケジューリング遅延の統計と
+ * ブロッキング呼び出しの検出結果を返します。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+@Component
+@Endpoint(id = "eventloops")
+public class EventLoopEndpoint {
+
+    private final ObjectProvider<EventLoopLagMonitor> lagMonitor;
+    private final BlockingCallDetector blockingCallDetector;
+
+    public EventLoopEndpoint(ObjectProvider<EventLoopLagMonitor> lagMonitor,
+                             BlockingCallDetector blockingCallDetector) {
+        this.lagMonitor = lagMonitor;
+        this.blockingCallDetector = blockingCallDetector;
+    }
+
+    /**
+     * イベントループの診断情報を取得する
+     *
+     * @return ループごとの遅延統計とブロッキング呼び出し検出結果
+     */
+    @ReadOperation
+    public Map<String, Object> eventLoops() {
+        Map<String, Object> loops = new TreeMap<>();
+        EventLoopLagMonitor monitor = lagMonitor.getIfAvailable();
+        if (monitor != null) {
+            monitor.getLagTimers().forEach((loop, timer) -> loops.put(loop, lagStatistics(timer)));
+        }
+
+        Map<String, Object> blocking = new LinkedHashMap<>();
+        blocking.put("active", blockingCallDetector.isActive());
+        blocking.put("calls", blockingCallDetector.getDetectedCalls());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("lagMonitorEnabled", monitor != null);
+        result.put("loops", loops);
+        result.put("blockingCalls", blocking);
+        return result;
+    }
+
+    /**
+     * タイマーから遅延統計（ミリ秒）を作成する
+     *
+     * @param timer ループの遅延タイマー
+     * @return 遅延統計
+     */
+    private Map<String, Object> lagStatistics(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("count", snapshot.count());
+        statistics.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+        statistics.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            statistics.put("p" + Math.round(percentile.percentile() * 100) + "Ms",
+                    percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return statistics;
+    }
+}
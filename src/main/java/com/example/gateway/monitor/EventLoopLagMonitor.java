@@ -0,0 +1,131 @@
+package com.example.gateway.monitor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.concurrent.EventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.stereotype.Component;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * reactor-nettyのイベントループ遅延を計測するモニター
+ *
+ * 一定間隔で各イベントループにプローブタスクを投入し、
+ * 投入からタスク実行開始までの遅延（スケジューリング遅延）を
+ * ループごとのヒストグラム（gateway.eventloop.lag）として記録します。
+ * ブロッキング処理によってループが停止すると、この遅延が増大します。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+@Component
+@ConditionalOnProperty(name = "gateway.diagnostics.event-loop-lag.enabled", havingValue = "true", matchIfMissing = true)
+public class EventLoopLagMonitor implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLoopLagMonitor.class);
+
+    /**
+     * 遅延ヒストグラムのメトリクス名
+     */
+    public static final String LAG_METRIC_NAME = "gateway.eventloop.lag";
+
+    private final ReactorResourceFactory resourceFactory;
+    private final MeterRegistry meterRegistry;
+    private final Duration interval;
+
+    /**
+     * ループ（スレッド名）ごとの遅延タイマー
+     */
+    private final Map<String, Timer> lagTimers = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    public EventLoopLagMonitor(ReactorResourceFactory resourceFactory,
+                               MeterRegistry meterRegistry,
+                               @Value("${gateway.diagnostics.event-loop-lag.interval:100ms}") Duration interval) {
+        this.resourceFactory = resourceFactory;
+        this.meterRegistry = meterRegistry;
+        this.interval = interval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-loop-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::probe, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+        logger.info("イベントループ遅延モニターを開始しました（間隔: {}）", interval);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 各イベントループにプローブタスクを投入する
+     */
+    void probe() {
+        if (!resourceFactory.isRunning()) {
+            return;
+        }
+        try {
+            LoopResources loopResources = resourceFactory.getLoopResources();
+            for (EventExecutor executor : loopResources.onServer(LoopResources.DEFAULT_NATIVE)) {
+                if (executor.isShuttingDown()) {
+                    continue;
+                }
+                long scheduledAt = System.nanoTime();
+                executor.execute(() -> record(Thread.currentThread().getName(), System.nanoTime() - scheduledAt));
+            }
+        } catch (RejectedExecutionException e) {
+            logger.debug("イベントループがシャットダウン中のためプローブをスキップしました");
+        } catch (Exception e) {
+            // スケジューラーを停止させないため、例外は握りつぶしてログのみ出力
+            logger.warn("イベントループ遅延の計測に失敗しました: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 遅延をループごとのタイマーに記録する
+     *
+     * @param loopName イベントループのスレッド名
+     * @param lagNanos スケジューリング遅延（ナノ秒）
+     */
+    private void record(String loopName, long lagNanos) {
+        lagTimers.computeIfAbsent(loopName, name -> Timer.builder(LAG_METRIC_NAME)
+                        .description("Scheduling lag of probe tasks on reactor-netty event loops")
+                        .tag("loop", name)
+                        .publishPercentiles(0.5, 0.9, 0.99)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(lagNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * ループごとの遅延タイマーを取得する
+     *
+     * @return スレッド名をキーとしたタイマー
+     */
+    public Map<String, Timer> getLagTimers() {
+        return Map.copyOf(lagTimers);
+    }
+}
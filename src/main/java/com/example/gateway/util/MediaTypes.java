@@ -0,0 +1,34 @@
+package com.example.gateway.util;
+
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * アプリケーションで扱うメディアタイプの定数
+ *
+ * Springの {@link MediaType} に定義のないSmile形式と、
+ * ユーザー情報APIがネゴシエーション可能な形式の一覧を定義します。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+public final class MediaTypes {
+
+    /**
+     * Jackson Smile形式
+     */
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    /**
+     * ユーザー情報APIが返却可能なメディアタイプ（優先順）
+     */
+    public static final List<MediaType> USER_INFO_MEDIA_TYPES = List.of(
+            MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_CBOR,
+            APPLICATION_SMILE
+    );
+
+    private MediaTypes() {
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.gateway.benchmark;
+
+import com.example.gateway.model.UserInfoResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserInfoResponseのシリアライズ形式（JSON / CBOR / Smile）を比較するJMHベンチマーク
+ *
+ * 形式ごとに以下を計測します。実行前にペイロードサイズも出力します。
+ * 1. serialize: UserInfoResponseのシリアライズ
+ * 2. parse: UserInfoResponseへのデシリアライズ
+ * 3. redact: RemoveUserIdResponseフィルターと同じ、ツリーとしてのパース・userId削除・書き出し
+ *
+ * 実行方法（テストとしては実行されません）:
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+ * java -cp target/test-classes:target/classes:$(cat target/classpath.txt) \
+ *     com.example.gateway.benchmark.UserInfoSerializationBenchmark
+ * </pre>
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserInfoSerializationBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectMapper mapper;
+    private UserInfoResponse response;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = mapperFor(format);
+        response = sampleResponse();
+        payload = mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public UserInfoResponse parse() throws IOException {
+        return mapper.readValue(payload, UserInfoResponse.class);
+    }
+
+    @Benchmark
+    public byte[] redact() throws IOException {
+        JsonNode node = mapper.readTree(payload);
+        ((ObjectNode) node).remove("userId");
+        return mapper.writeValueAsBytes(node);
+    }
+
+    private static ObjectMapper mapperFor(String format) {
+        return switch (format) {
+            case "cbor" -> new CBORMapper();
+            case "smile" -> new SmileMapper();
+            default -> new ObjectMapper();
+        };
+    }
+
+    private static UserInfoResponse sampleResponse() {
+        return new UserInfoResponse(
+                "user-12345",
+                "AnonymousUser",
+                "2024-01-01T00:00:00Z",
+                "gateway",
+                "backend-api",
+                "User information retrieved successfully"
+        );
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        for (String format : new String[]{"json", "cbor", "smile"}) {
+            System.out.printf("payload size [%s]: %d bytes%n",
+                    format, mapperFor(format).writeValueAsBytes(sampleResponse()).length);
+        }
+        new Runner(new OptionsBuilder()
+                .include(UserInfoSerializationBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,427 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.loadbalancer.ConsistentHashLoadBalancer;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+
+/**
+ * HedgeGatewayFilterFactoryのテストクラス
+ *
+ * ヘッジ予算・ヘッジ遅延の計算と、スタブの上流サーバーに対する
+ * ヘッジ送信・キャンセル・通常ルーティングへの委譲を確認します。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+class HedgeGatewayFilterFactoryTests {
+
+    private static final String ROUTE_ID = "user-info-route";
+    private static final String NORMALLY_ROUTED = "routed-normally";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<DisposableServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+
+    /**
+     * ヘッジ予算がバースト上限から始まり、リクエストごとに積み立てられることを確認するテスト
+     */
+    @Test
+    void hedgeBudgetIsConsumedAndReplenished() {
+        HedgeGatewayFilterFactory.Config config = config();
+        config.setBudgetPercent(50);
+        config.setBudgetBurst(2);
+        HedgeGatewayFilterFactory.HedgeState state = new HedgeGatewayFilterFactory.HedgeState(config, registry);
+
+        assertThat(state.tryAcquireHedge()).isTrue();
+        assertThat(state.tryAcquireHedge()).isTrue();
+        assertThat(state.hasHedgeBudget()).isFalse();
+        assertThat(state.tryAcquireHedge()).isFalse();
+        // 予算不足として数えるのは、ヘッジを送信しようとして消費に失敗した場合のみ
+        assertThat(counter("gateway.hedge.budget.exhausted")).isEqualTo(1);
+
+        // 50%の予算では2リクエストでヘッジ1回分
+        state.onRequest();
+        assertThat(state.hasHedgeBudget()).isFalse();
+        state.onRequest();
+        assertThat(state.hasHedgeBudget()).isTrue();
+        assertThat(state.tryAcquireHedge()).isTrue();
+
+        // バースト上限を超えて積み立てられない
+        for (int i = 0; i < 100; i++) {
+            state.onRequest();
+        }
+        assertThat(state.tryAcquireHedge()).isTrue();
+        assertThat(state.tryAcquireHedge()).isTrue();
+        assertThat(state.tryAcquireHedge()).isFalse();
+    }
+
+    /**
+     * サンプル不足の間は初期遅延、以降は観測パーセンタイル（下限あり）を1秒ごとに反映することを確認するテスト
+     */
+    @Test
+    void hedgeDelayFollowsObservedPercentile() {
+        HedgeGatewayFilterFactory.Config config = config();
+        config.setMinSamples(10);
+        AtomicLong clock = new AtomicLong();
+        HedgeGatewayFilterFactory.HedgeState state =
+                new HedgeGatewayFilterFactory.HedgeState(config, registry, clock::get);
+
+        assertThat(state.hedgeDelay()).isEqualTo(config.getInitialDelay());
+
+        for (int i = 0; i < 20; i++) {
+            latencyTimer().record(Duration.ofMillis(50));
+        }
+        // 再計算間隔内はキャッシュされた値を返す
+        assertThat(state.hedgeDelay()).isEqualTo(config.getInitialDelay());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(state.hedgeDelay().toMillis()).isBetween(45L, 55L);
+
+        // 観測値が下限を下回る場合は下限を使用する
+        SimpleMeterRegistry fastRegistry = new SimpleMeterRegistry();
+        HedgeGatewayFilterFactory.HedgeState fastState =
+                new HedgeGatewayFilterFactory.HedgeState(config, fastRegistry, clock::get);
+        for (int i = 0; i < 20; i++) {
+            fastRegistry.get("gateway.hedge.upstream.latency").timer().record(Duration.ofMillis(1));
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(fastState.hedgeDelay()).isEqualTo(config.getMinDelay());
+    }
+
+    /**
+     * 遅いプライマリに対してヘッジが送信・採用され、プライマリがキャンセルされることを確認するテスト
+     */
+    @Test
+    void hedgeWinsAgainstSlowPrimaryAndCancelsIt() throws InterruptedException {
+        CountDownLatch slowCancelled = new CountDownLatch(1);
+        DisposableServer slow = server(Mono.delay(Duration.ofSeconds(5)).thenReturn("slow")
+                .doOnCancel(slowCancelled::countDown));
+        DisposableServer fast = server(Mono.just("fast"));
+        HedgeGatewayFilterFactory.Config config = config();
+        config.setInitialDelay(Duration.ofMillis(50));
+
+        MockServerWebExchange exchange = exchange(slow, fast);
+        AtomicInteger chainCalls = new AtomicInteger();
+        filter(config, slow, fast).filter(exchange, chain(chainCalls)).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(5))).isEqualTo("fast");
+        assertThat(isAlreadyRouted(exchange)).isTrue();
+        assertThat(chainCalls).hasValue(1);
+        assertThat(counter("gateway.hedge.sent")).isEqualTo(1);
+        assertThat(counter("gateway.hedge.won")).isEqualTo(1);
+        assertThat(slowCancelled.await(5, TimeUnit.SECONDS)).isTrue();
+        // プライマリのレイテンシはキャンセル時点（ヘッジ遅延以上）で記録される
+        assertThat(latencyTimer().count()).isEqualTo(1);
+        assertThat(latencyTimer().max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(50);
+    }
+
+    /**
+     * ヘッジ先が、userIdに対するランデブーハッシュのスコアが2番目のインスタンスであることを確認するテスト
+     */
+    @Test
+    void hedgeTargetsSecondRankedInstanceForKey() {
+        AtomicInteger slowPort = new AtomicInteger();
+        DisposableServer[] stubs = new DisposableServer[3];
+        for (int i = 0; i < stubs.length; i++) {
+            int index = i;
+            stubs[i] = server(Mono.defer(() -> stubs[index].port() == slowPort.get()
+                    ? Mono.delay(Duration.ofSeconds(5)).thenReturn("slow")
+                    : Mono.just("stub-" + index)));
+        }
+        List<ServiceInstance> ranked = ConsistentHashLoadBalancer.rank(
+                List.of(instance(stubs[0]), instance(stubs[1]), instance(stubs[2])), "12345");
+        DisposableServer primary = stubFor(stubs, ranked.get(0));
+        DisposableServer secondRanked = stubFor(stubs, ranked.get(1));
+        slowPort.set(primary.port());
+
+        MockServerWebExchange exchange = exchange(primary, secondRanked);
+        filter(configWithShortDelay(), stubs).filter(exchange, chain(new AtomicInteger())).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(5)))
+                .isEqualTo("stub-" + List.of(stubs).indexOf(secondRanked));
+        assertThat(counter("gateway.hedge.won")).isEqualTo(1);
+    }
+
+    /**
+     * インスタンスが1つしかない場合は通常のルーティングに委譲することを確認するテスト
+     */
+    @Test
+    void singleInstanceFallsBackToNormalRouting() {
+        DisposableServer only = server(Mono.just("only"));
+
+        MockServerWebExchange exchange = exchange(only, only);
+        AtomicInteger chainCalls = new AtomicInteger();
+        filter(config(), only).filter(exchange, chain(chainCalls)).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(5))).isEqualTo(NORMALLY_ROUTED);
+        assertThat(chainCalls).hasValue(1);
+        assertThat(counter("gateway.hedge.sent")).isZero();
+    }
+
+    /**
+     * ヘッジ予算が残っていない場合はバッファリングせず通常のルーティングに委譲することを確認するテスト
+     */
+    @Test
+    void exhaustedBudgetFallsBackToNormalRouting() {
+        DisposableServer primary = server(Mono.just("primary"));
+        DisposableServer other = server(Mono.just("other"));
+        HedgeGatewayFilterFactory.Config config = config();
+        config.setBudgetPercent(0);
+        config.setBudgetBurst(0);
+
+        MockServerWebExchange exchange = exchange(primary, other);
+        filter(config, primary, other).filter(exchange, chain(new AtomicInteger())).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(5))).isEqualTo(NORMALLY_ROUTED);
+        assertThat(counter("gateway.hedge.fallback")).isEqualTo(1);
+        assertThat(counter("gateway.hedge.budget.exhausted")).isZero();
+    }
+
+    /**
+     * レスポンスボディが上限を超えた場合は通常のルーティングで再送し、再送を予算から差し引いて
+     * 以降そのルートではヘッジしないことを確認するテスト
+     */
+    @Test
+    void oversizedBodyFallsBackToNormalRouting() {
+        AtomicInteger primaryHits = new AtomicInteger();
+        DisposableServer primary = server(Mono.fromSupplier(() -> {
+            primaryHits.incrementAndGet();
+            return "x".repeat(1024);
+        }));
+        DisposableServer other = server(Mono.just("other"));
+        HedgeGatewayFilterFactory.Config config = config();
+        config.setMaxBodySize(DataSize.ofBytes(64));
+        config.setBudgetPercent(0);
+        config.setBudgetBurst(1);
+        // プライマリの応答で判定されるよう、ヘッジは送信させない
+        config.setInitialDelay(Duration.ofSeconds(5));
+
+        GatewayFilter filter = filter(config, primary, other);
+        MockServerWebExchange exchange = exchange(primary, other);
+        AtomicInteger chainCalls = new AtomicInteger();
+        filter.filter(exchange, chain(chainCalls)).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(5))).isEqualTo(NORMALLY_ROUTED);
+        assertThat(isAlreadyRouted(exchange)).isFalse();
+        assertThat(chainCalls).hasValue(1);
+        assertThat(primaryHits).hasValue(1);
+        assertThat(counter("gateway.hedge.resend")).isEqualTo(1);
+
+        // 2回目以降はヘッジ経路を通らず、上流への直接の試行も行わない
+        MockServerWebExchange second = exchange(primary, other);
+        filter.filter(second, chain(chainCalls)).block(Duration.ofSeconds(5));
+
+        assertThat(second.getResponse().getBodyAsString().block(Duration.ofSeconds(5))).isEqualTo(NORMALLY_ROUTED);
+        assertThat(chainCalls).hasValue(2);
+        assertThat(primaryHits).hasValue(1);
+        assertThat(counter("gateway.hedge.resend")).isEqualTo(1);
+    }
+
+    /**
+     * 再送はヘッジ1回分として予算から差し引かれることを確認するテスト
+     */
+    @Test
+    void oversizedResendIsChargedAgainstBudget() {
+        HedgeGatewayFilterFactory.Config config = config();
+        config.setBudgetBurst(1);
+        HedgeGatewayFilterFactory.HedgeState state = new HedgeGatewayFilterFactory.HedgeState(config, registry);
+
+        assertThat(state.hasHedgeBudget()).isTrue();
+        state.onOversizedResend();
+
+        assertThat(state.hasHedgeBudget()).isFalse();
+        assertThat(state.isOversizedRoute()).isTrue();
+        assertThat(counter("gateway.hedge.resend")).isEqualTo(1);
+    }
+
+    /**
+     * 両方の試行が失敗した場合、NoSuchElementExceptionではなく上流のエラーが伝播することを確認するテスト
+     */
+    @Test
+    void bothAttemptsFailingPropagatesUpstreamError() {
+        DisposableServer down = server(Mono.just("down"));
+        DisposableServer alsoDown = server(Mono.just("down"));
+        MockServerWebExchange exchange = exchange(down, alsoDown);
+        GatewayFilter filter = filter(configWithShortDelay(), down, alsoDown);
+        down.disposeNow();
+        alsoDown.disposeNow();
+
+        assertThatThrownBy(() -> filter.filter(exchange, chain(new AtomicInteger())).block(Duration.ofSeconds(5)))
+                .isInstanceOf(WebClientRequestException.class);
+        assertThat(counter("gateway.hedge.sent")).isEqualTo(1);
+    }
+
+    /**
+     * ルートのresponse-timeoutがプライマリ・ヘッジそれぞれの試行に適用され、504になることを確認するテスト
+     */
+    @Test
+    void routeResponseTimeoutAppliesToEachAttempt() {
+        DisposableServer slow = server(Mono.delay(Duration.ofSeconds(5)).thenReturn("slow"));
+        DisposableServer alsoSlow = server(Mono.delay(Duration.ofSeconds(5)).thenReturn("slow"));
+        HedgeGatewayFilterFactory.Config config = config();
+        config.setInitialDelay(Duration.ofMillis(50));
+
+        MockServerWebExchange exchange = exchange(slow, alsoSlow, Map.of(RESPONSE_TIMEOUT_ATTR, 300));
+        GatewayFilter filter = filter(config, slow, alsoSlow);
+        long startTime = System.nanoTime();
+
+        assertThatThrownBy(() -> filter.filter(exchange, chain(new AtomicInteger())).block(Duration.ofSeconds(5)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT));
+        // ヘッジは送信時点から計測するため、ヘッジ遅延 + タイムアウト程度で終わる
+        assertThat(Duration.ofNanos(System.nanoTime() - startTime).toMillis()).isBetween(300L, 3000L);
+        assertThat(counter("gateway.hedge.sent")).isEqualTo(1);
+    }
+
+    private HedgeGatewayFilterFactory.Config config() {
+        HedgeGatewayFilterFactory.Config config = new HedgeGatewayFilterFactory.Config();
+        config.setRouteId(ROUTE_ID);
+        return config;
+    }
+
+    private HedgeGatewayFilterFactory.Config configWithShortDelay() {
+        HedgeGatewayFilterFactory.Config config = config();
+        config.setInitialDelay(Duration.ofMillis(10));
+        return config;
+    }
+
+    private double counter(String name) {
+        return registry.get(name).tag("route", ROUTE_ID).counter().count();
+    }
+
+    private Timer latencyTimer() {
+        return registry.get("gateway.hedge.upstream.latency").tag("route", ROUTE_ID).timer();
+    }
+
+    private DisposableServer server(Mono<String> body) {
+        DisposableServer server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get("/api/user-info", (request, response) -> response.sendString(body)))
+                .bindNow();
+        servers.add(server);
+        return server;
+    }
+
+    private GatewayFilter filter(HedgeGatewayFilterFactory.Config config, DisposableServer... instances) {
+        List<ServiceInstance> serviceInstances = new ArrayList<>();
+        for (DisposableServer instance : instances) {
+            serviceInstances.add(instance(instance));
+        }
+        ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return "user-service";
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(serviceInstances);
+            }
+        };
+        LoadBalancerClientFactory loadBalancerClientFactory = mock(LoadBalancerClientFactory.class);
+        when(loadBalancerClientFactory.getInstance("user-service", ServiceInstanceListSupplier.class)).thenReturn(supplier);
+
+        return new HedgeGatewayFilterFactory(WebClient.builder(), HttpClient.create(), new HttpClientProperties(),
+                loadBalancerClientFactory,
+                new SimpleObjectProvider<>(List.of()), registry, "userId").apply(config);
+    }
+
+    private MockServerWebExchange exchange(DisposableServer primary, DisposableServer other) {
+        return exchange(primary, other, Map.of());
+    }
+
+    private MockServerWebExchange exchange(DisposableServer primary, DisposableServer other, Map<String, Object> metadata) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("http://gateway/api/user-info?userId=12345"));
+        exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(instance(primary)));
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR,
+                URI.create("http://localhost:" + primary.port() + "/api/user-info?userId=12345"));
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, Route.async()
+                .id(ROUTE_ID)
+                .uri("lb://user-service")
+                .metadata(metadata)
+                .predicate(e -> true)
+                .build());
+        return exchange;
+    }
+
+    private DisposableServer stubFor(DisposableServer[] stubs, ServiceInstance instance) {
+        for (DisposableServer stub : stubs) {
+            if (stub.port() == instance.getPort()) {
+                return stub;
+            }
+        }
+        throw new IllegalArgumentException("スタブが見つかりません: " + instance.getPort());
+    }
+
+    private ServiceInstance instance(DisposableServer server) {
+        return new DefaultServiceInstance("user-service-" + server.port(), "user-service",
+                "localhost", server.port(), false);
+    }
+
+    /**
+     * 後続のフィルターチェーンを模したチェーン
+     *
+     * ルーティング済みでなければ、NettyRoutingFilterの代わりに固定のボディを書き込みます。
+     */
+    private GatewayFilterChain chain(AtomicInteger calls) {
+        return exchange -> {
+            calls.incrementAndGet();
+            if (isAlreadyRouted(exchange)) {
+                return Mono.empty();
+            }
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                    .wrap(NORMALLY_ROUTED.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.gateway.filter;
+
+import com.example.gateway.config.CodecConfig;
+import com.example.gateway.util.MediaTypes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.rewrite.GzipMessageBodyResolver;
+import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyDecoder;
+import org.springframework.cloud.gateway.filter.factory.rewrite.MessageBodyEncoder;
+import org.springframework.cloud.gateway.filter.factory.rewrite.ModifyResponseBodyGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * RemoveUserIdResponseGatewayFilterFactoryのテストクラス
+ *
+ * ModifyResponseBodyを含むフィルター全体を通して、userIdの削除
+ * （JSON・CBOR・Smile、gzip・deflateでエンコードされた上流を含む）と
+ * ETag生成・条件付きGETへの304応答を確認します。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+class RemoveUserIdResponseGatewayFilterFactoryTests {
+
+    private static final String UPSTREAM_BODY =
+            "{\"userId\":\"12345\",\"userName\":\"AnonymousUser\",\"source\":\"gateway\"}";
+    private static final String REDACTED_BODY =
+            "{\"userName\":\"AnonymousUser\",\"source\":\"gateway\"}";
+
+    private static final Map<String, Object> UPSTREAM_VALUE =
+            Map.of("userId", "12345", "userName", "AnonymousUser", "source", "gateway");
+
+    private final GzipMessageBodyResolver gzip = new GzipMessageBodyResolver();
+    private final CodecConfig.DeflateMessageBodyResolver deflate = new CodecConfig.DeflateMessageBodyResolver();
+    private final Set<MessageBodyDecoder> decoders = Set.of(gzip, deflate);
+    private final Set<MessageBodyEncoder> encoders = Set.of(gzip, deflate);
+
+    private final GatewayFilter filter = new RemoveUserIdResponseGatewayFilterFactory(
+            new ModifyResponseBodyGatewayFilterFactory(ServerCodecConfigurer.create().getReaders(), decoders, encoders),
+            decoders, encoders)
+            .apply(new RemoveUserIdResponseGatewayFilterFactory.Config());
+
+    /**
+     * userIdが削除され、書き換え後のボディからETagが生成されることを確認するテスト
+     */
+    @Test
+    void removesUserIdAndGeneratesEtag() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user-info"));
+
+        filter.filter(exchange, upstream(UPSTREAM_BODY)).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(5))).isEqualTo(REDACTED_BODY);
+        assertThat(exchange.getResponse().getHeaders().getETag())
+                .isEqualTo(RemoveUserIdResponseGatewayFilterFactory.toEtag(REDACTED_BODY.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * If-None-Matchが一致する場合、ボディなしの304が返ることを確認するテスト
+     */
+    @Test
+    void returnsNotModifiedWhenIfNoneMatchMatches() {
+        String etag = RemoveUserIdResponseGatewayFilterFactory.toEtag(REDACTED_BODY.getBytes(StandardCharsets.UTF_8));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user-info")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0000000000000000\", " + etag));
+
+        filter.filter(exchange, upstream(UPSTREAM_BODY)).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(exchange.getResponse().getHeaders().getETag()).isEqualTo(etag);
+        // ETagは形式ごとに異なるため、304でもVaryを維持する
+        assertThat(exchange.getResponse().getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT);
+        assertThat(exchange.getResponse().getHeaders().getContentLength()).isNotPositive();
+        // ボディは一切書き込まれない（MockServerHttpResponseは未書き込みをエラーで通知する）
+        assertThatThrownBy(() -> exchange.getResponse().getBody().blockFirst(Duration.ofSeconds(5)))
+                .hasMessageContaining("No content was written");
+    }
+
+    /**
+     * GET以外のリクエストにはETagを付与しないことを確認するテスト
+     */
+    @Test
+    void skipsEtagForNonGetRequests() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/user-info")
+                .header(HttpHeaders.IF_NONE_MATCH, "*"));
+
+        filter.filter(exchange, upstream(UPSTREAM_BODY)).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getETag()).isNull();
+        assertThat(exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(5))).isEqualTo(REDACTED_BODY);
+    }
+
+    /**
+     * CBOR・Smile形式のレスポンスが元の形式のまま書き換えられ、userIdが含まれないことを確認するテスト
+     */
+    @Test
+    void removesUserIdFromCborAndSmile() throws IOException {
+        for (ObjectMapper mapper : List.of(new CBORMapper(), new SmileMapper())) {
+            MediaType mediaType = mapper instanceof CBORMapper ? MediaType.APPLICATION_CBOR : MediaTypes.APPLICATION_SMILE;
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user-info"));
+
+            filter.filter(exchange, upstream(mediaType, null, mapper.writeValueAsBytes(UPSTREAM_VALUE)))
+                    .block(Duration.ofSeconds(5));
+
+            assertThat(exchange.getResponse().getHeaders().getContentType()).isEqualTo(mediaType);
+            JsonNode body = mapper.readTree(responseBytes(exchange));
+            assertThat(body.has("userId")).as(mediaType.toString()).isFalse();
+            assertThat(body.get("userName").asText()).isEqualTo("AnonymousUser");
+        }
+    }
+
+    /**
+     * gzip・deflateでエンコードされた上流のレスポンスから、デコード後にuserIdが削除され、
+     * 同じContent-Encodingで再エンコードされることを確認するテスト
+     */
+    @Test
+    void removesUserIdFromCompressedUpstream() throws IOException {
+        byte[] json = UPSTREAM_BODY.getBytes(StandardCharsets.UTF_8);
+        for (String encoding : List.of("gzip", "deflate")) {
+            byte[] compressed = encoding.equals("gzip") ? gzip(json) : deflate.encode(
+                    DefaultDataBufferFactory.sharedInstance.wrap(json));
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/user-info"));
+
+            filter.filter(exchange, upstream(MediaType.APPLICATION_JSON, encoding, compressed))
+                    .block(Duration.ofSeconds(5));
+
+            byte[] body = responseBytes(exchange);
+            byte[] decoded = encoding.equals("gzip") ? gunzip(body) : deflate.decode(body);
+            assertThat(new String(decoded, StandardCharsets.UTF_8)).as(encoding).isEqualTo(REDACTED_BODY);
+            assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo(encoding);
+            // ETagは圧縮前の書き換え後の内容から計算され、エンコーディングに依存しない
+            assertThat(exchange.getResponse().getHeaders().getETag())
+                    .isEqualTo(RemoveUserIdResponseGatewayFilterFactory.toEtag(REDACTED_BODY.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * RequestRewriteがtimestampを付与し上流がそれをボディに含めても、2回目の
+     * 条件付きGETが304になることを確認するテスト
+     */
+    @Test
+    void returnsNotModifiedDespiteRequestTimestamp() throws InterruptedException {
+        GatewayFilter requestRewrite = new RequestRewriteGatewayFilterFactory()
+                .apply(new RequestRewriteGatewayFilterFactory.Config());
+        GatewayFilterChain chain = exchange -> filter.filter(exchange, echoingUpstream());
+
+        MockServerWebExchange first = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/gateway/api/user-info?userId=12345"));
+        requestRewrite.filter(first, chain).block(Duration.ofSeconds(5));
+        String etag = first.getResponse().getHeaders().getETag();
+        assertThat(first.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getResponse().getBodyAsString().block(Duration.ofSeconds(5)))
+                .contains("\"timestamp\"").doesNotContain("userId");
+        assertThat(etag).startsWith("W/\"");
+
+        Thread.sleep(5);
+        MockServerWebExchange second = MockServerWebExchange.from(
+                MockServerHttpRequest.get("/gateway/api/user-info?userId=12345")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag));
+        requestRewrite.filter(second, chain).block(Duration.ofSeconds(5));
+
+        assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(second.getResponse().getHeaders().getETag()).isEqualTo(etag);
+    }
+
+    /**
+     * If-None-Matchの *、W/ プレフィックス、複数値の判定を確認するテスト
+     */
+    @Test
+    void matchesIfNoneMatchValues() {
+        String etag = "\"0123456789abcdef\"";
+
+        assertThat(RemoveUserIdResponseGatewayFilterFactory.matchesIfNoneMatch(List.of("*"), etag)).isTrue();
+        assertThat(RemoveUserIdResponseGatewayFilterFactory.matchesIfNoneMatch(List.of(etag), etag)).isTrue();
+        assertThat(RemoveUserIdResponseGatewayFilterFactory.matchesIfNoneMatch(List.of("W/" + etag), etag)).isTrue();
+        assertThat(RemoveUserIdResponseGatewayFilterFactory.matchesIfNoneMatch(List.of(etag), "W/" + etag)).isTrue();
+        assertThat(RemoveUserIdResponseGatewayFilterFactory.matchesIfNoneMatch(
+                List.of("\"fedcba9876543210\"", " " + etag), etag)).isTrue();
+        assertThat(RemoveUserIdResponseGatewayFilterFactory.matchesIfNoneMatch(
+                List.of("\"fedcba9876543210\"", "W/\"1111111111111111\""), etag)).isFalse();
+        assertThat(RemoveUserIdResponseGatewayFilterFactory.matchesIfNoneMatch(List.of(), etag)).isFalse();
+    }
+
+    /**
+     * 指定したJSONボディを200で返す上流を模したフィルターチェーンを生成する
+     */
+    private GatewayFilterChain upstream(String body) {
+        return upstream(MediaType.APPLICATION_JSON, null, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 指定した形式・Content-Encodingのボディを200で返す上流を模したフィルターチェーンを生成する
+     */
+    private GatewayFilterChain upstream(MediaType contentType, String contentEncoding, byte[] body) {
+        return (ServerWebExchange exchange) -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().setContentType(contentType);
+            // バックエンドはAcceptによって形式を変えるため、Vary: Accept を返す
+            exchange.getResponse().getHeaders().setVary(List.of(HttpHeaders.ACCEPT));
+            if (contentEncoding != null) {
+                exchange.getResponse().getHeaders().set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+            }
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+        };
+    }
+
+    /**
+     * リクエストのクエリパラメータ（timestampを含む）をJSONボディに含めて返す上流を模したフィルターチェーンを生成する
+     */
+    private GatewayFilterChain echoingUpstream() {
+        return (ServerWebExchange exchange) -> {
+            Map<String, String> query = exchange.getRequest().getQueryParams().toSingleValueMap();
+            String body = String.format("{\"userId\":\"%s\",\"userName\":\"AnonymousUser\",\"timestamp\":\"%s\"}",
+                    query.get("userId"), query.get("timestamp"));
+            return upstream(body).filter(exchange);
+        };
+    }
+
+    private byte[] responseBytes(MockServerWebExchange exchange) {
+        return DataBufferUtils.join(exchange.getResponse().getBody())
+                .map(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .block(Duration.ofSeconds(5));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream gunzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return gunzip.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.gateway.handler;
+
+import com.example.gateway.config.CodecConfig;
+import com.example.gateway.config.RouterConfig;
+import com.example.gateway.util.MediaTypes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UserInfoHandlerのテストクラス
+ *
+ * Acceptヘッダー（q値を含む）に応じて、JSON・CBOR・Smileのいずれかの
+ * Content-Typeでレスポンスが返され、Vary: Accept が付与されることを確認します。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+class UserInfoHandlerTests {
+
+    private final WebTestClient client = WebTestClient
+            .bindToRouterFunction(new RouterConfig().apiRoutes(new UserInfoHandler()))
+            .handlerStrategies(HandlerStrategies.builder()
+                    .codecs(configurer -> new CodecConfig().cborCodecCustomizer().customize(configurer))
+                    .build())
+            .build();
+
+    /**
+     * Accept: application/cbor でCBOR形式のレスポンスが返されることを確認するテスト
+     */
+    @Test
+    void returnsCborForCborAccept() throws IOException {
+        byte[] body = exchange("application/cbor", MediaType.APPLICATION_CBOR);
+
+        JsonNode node = new CBORMapper().readTree(body);
+        assertThat(node.get("userId").asText()).isEqualTo("12345");
+    }
+
+    /**
+     * Accept: application/x-jackson-smile でSmile形式のレスポンスが返されることを確認するテスト
+     */
+    @Test
+    void returnsSmileForSmileAccept() throws IOException {
+        byte[] body = exchange("application/x-jackson-smile", MediaTypes.APPLICATION_SMILE);
+
+        JsonNode node = new SmileMapper().readTree(body);
+        assertThat(node.get("userId").asText()).isEqualTo("12345");
+    }
+
+    /**
+     * q値の高い形式が優先されることを確認するテスト
+     */
+    @Test
+    void honoursQualityValues() {
+        exchange("application/json;q=0.5, application/cbor", MediaType.APPLICATION_CBOR);
+        exchange("application/cbor;q=0.4, application/x-jackson-smile;q=0.8", MediaTypes.APPLICATION_SMILE);
+        exchange("application/x-jackson-smile;q=0.2, application/json;q=0.9", MediaType.APPLICATION_JSON);
+        exchange("application/cbor;q=0.9, */*;q=0.1", MediaType.APPLICATION_CBOR);
+    }
+
+    /**
+     * Acceptヘッダーがない場合、またはワイルドカードの場合はJSONが返されることを確認するテスト
+     */
+    @Test
+    void defaultsToJson() {
+        client.get().uri("/api/user-info?userId=12345")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        exchange("*/*", MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * エラー応答・ヘルスチェックも交渉した形式で返され、Vary: Accept が付与されることを確認するテスト
+     */
+    @Test
+    void addsVaryAcceptToEveryNegotiatedResponse() {
+        client.get().uri("/api/user-info")
+                .header(HttpHeaders.ACCEPT, "application/cbor")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR)
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        client.get().uri("/api/health")
+                .header(HttpHeaders.ACCEPT, "application/x-jackson-smile")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaTypes.APPLICATION_SMILE)
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    private byte[] exchange(String accept, MediaType expected) {
+        return client.get().uri("/api/user-info?userId=12345")
+                .header(HttpHeaders.ACCEPT, accept)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(expected)
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .expectBody().returnResult().getResponseBody();
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.gateway.loadbalancer;
+
+import com.example.gateway.GatewayDemoApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ConsistentHashLoadBalancerのテストクラス
+ *
+ * 複数のスタブインスタンスに対して、同一キーの振り分け先が固定されること、
+ * インスタンス削除時に移動するキーが最小限であることを確認します。
+ * また、起動したGatewayからlb://user-service経由で実際のスタブサーバーに
+ * 振り分けられることも確認します。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+class ConsistentHashLoadBalancerTests {
+
+    private static final int KEY_COUNT = 1000;
+
+    /**
+     * 同じuserIdは常に同じインスタンスに振り分けられることを確認するテスト
+     */
+    @Test
+    void sameKeyIsRoutedToSameInstance() {
+        ConsistentHashLoadBalancer loadBalancer = loadBalancer(instances(8081, 8082, 8083));
+
+        for (int i = 0; i < 100; i++) {
+            String userId = "user-" + i;
+            ServiceInstance first = choose(loadBalancer, userId);
+            for (int attempt = 0; attempt < 5; attempt++) {
+                assertThat(choose(loadBalancer, userId).getPort()).isEqualTo(first.getPort());
+            }
+        }
+    }
+
+    /**
+     * インスタンス削除時、削除されたインスタンスのキーのみ移動することを確認するテスト
+     */
+    @Test
+    void removingInstanceOnlyMovesItsKeys() {
+        Map<String, Integer> before = assignments(loadBalancer(instances(8081, 8082, 8083, 8084)));
+        Map<String, Integer> after = assignments(loadBalancer(instances(8081, 8082, 8084)));
+
+        before.forEach((userId, port) -> {
+            if (port != 8083) {
+                assertThat(after.get(userId)).isEqualTo(port);
+            } else {
+                assertThat(after.get(userId)).isNotEqualTo(8083);
+            }
+        });
+        // 削除前も各インスタンスにある程度均等に分散していること
+        assertThat(before.values().stream().filter(port -> port == 8083).count())
+                .isBetween(KEY_COUNT / 8L, KEY_COUNT * 3L / 8L);
+    }
+
+    /**
+     * インスタンス追加時、移動するキーは追加されたインスタンスへのもののみであることを確認するテスト
+     */
+    @Test
+    void addingInstanceOnlyMovesKeysToIt() {
+        Map<String, Integer> before = assignments(loadBalancer(instances(8081, 8082, 8083)));
+        Map<String, Integer> after = assignments(loadBalancer(instances(8081, 8082, 8083, 8084)));
+
+        before.forEach((userId, port) ->
+                assertThat(after.get(userId)).isIn(port, 8084));
+    }
+
+    /**
+     * スコア順の先頭がchooseの選択と一致し、2番目が先頭の削除時にキーが移る先であることを確認するテスト
+     */
+    @Test
+    void rankStartsWithChosenInstanceAndThenItsSuccessor() {
+        List<ServiceInstance> instances = instances(8081, 8082, 8083, 8084);
+        ConsistentHashLoadBalancer loadBalancer = loadBalancer(instances);
+
+        for (int i = 0; i < 100; i++) {
+            String userId = "user-" + i;
+            List<ServiceInstance> ranked = ConsistentHashLoadBalancer.rank(instances, userId);
+            assertThat(ranked).hasSize(instances.size());
+            assertThat(ranked.get(0).getPort()).isEqualTo(choose(loadBalancer, userId).getPort());
+
+            List<ServiceInstance> remaining = new ArrayList<>(instances);
+            remaining.remove(ranked.get(0));
+            assertThat(choose(loadBalancer(remaining), userId).getPort()).isEqualTo(ranked.get(1).getPort());
+        }
+    }
+
+    /**
+     * userIdを持たないリクエストはラウンドロビンで振り分けられることを確認するテスト
+     */
+    @Test
+    void requestsWithoutKeyUseRoundRobin() {
+        ConsistentHashLoadBalancer loadBalancer = loadBalancer(instances(8081, 8082));
+
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ports.add(choose(loadBalancer, null).getPort());
+        }
+        assertThat(ports).containsExactly(8081, 8082, 8081, 8082);
+    }
+
+    /**
+     * Gateway経由（ReactiveLoadBalancerClientFilter → lb://user-service）でも、
+     * 同じuserIdのリクエストが常に同じスタブサーバーに届くことを確認するテスト
+     */
+    @Test
+    void gatewayRoutesSameUserIdToSameStub() {
+        List<DisposableServer> stubs = List.of(stub("stub-0"), stub("stub-1"), stub("stub-2"));
+        // ヘッジの勝者は別レプリカになり得るため、ルートはHedgeを含めずに定義する
+        // application.ymlのルート・インスタンス一覧を置き換えるため、コマンドライン引数として渡す
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--logging.level.com.example.gateway=INFO",
+                "--logging.level.org.springframework.cloud.gateway=INFO",
+                "--spring.cloud.gateway.routes[0].id=user-info-route",
+                "--spring.cloud.gateway.routes[0].uri=lb://user-service",
+                "--spring.cloud.gateway.routes[0].predicates[0]=Path=/gateway/**",
+                "--spring.cloud.gateway.routes[0].filters[0]=RequestRewrite=1"));
+        for (int i = 0; i < stubs.size(); i++) {
+            args.add("--spring.cloud.discovery.client.simple.instances.user-service[" + i + "].uri=http://localhost:"
+                    + stubs.get(i).port());
+        }
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(GatewayDemoApplication.class)
+                .run(args.toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            WebClient client = WebClient.create("http://localhost:" + port);
+
+            Set<String> usedStubs = new HashSet<>();
+            for (int i = 0; i < 20; i++) {
+                String userId = "user-" + i;
+                String first = fetchStub(client, userId);
+                for (int attempt = 0; attempt < 3; attempt++) {
+                    assertThat(fetchStub(client, userId)).as(userId).isEqualTo(first);
+                }
+                usedStubs.add(first);
+            }
+            // 振り分け先が1台に偏っていないこと
+            assertThat(usedStubs).hasSizeGreaterThan(1);
+        } finally {
+            stubs.forEach(DisposableServer::disposeNow);
+        }
+    }
+
+    private String fetchStub(WebClient client, String userId) {
+        return client.get().uri("/gateway/api/user-info?userId={userId}", userId)
+                .retrieve()
+                .bodyToMono(String.class)
+                .block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * 自身の名前をボディとして返すスタブサーバーを起動する
+     */
+    private DisposableServer stub(String name) {
+        return HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.get("/api/user-info", (request, response) -> response.sendString(Mono.just(name))))
+                .bindNow();
+    }
+
+    private Map<String, Integer> assignments(ConsistentHashLoadBalancer loadBalancer) {
+        Map<String, Integer> result = new HashMap<>();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            String userId = "user-" + i;
+            result.put(userId, choose(loadBalancer, userId).getPort());
+        }
+        return result;
+    }
+
+    private ServiceInstance choose(ConsistentHashLoadBalancer loadBalancer, String userId) {
+        String uri = "http://user-service/api/user-info" + (userId != null ? "?userId=" + userId : "");
+        RequestData requestData = new RequestData(MockServerHttpRequest.get(uri).build());
+        Response<ServiceInstance> response = loadBalancer
+                .choose(new DefaultRequest<>(new RequestDataContext(requestData)))
+                .block();
+        return response.getServer();
+    }
+
+    private ConsistentHashLoadBalancer loadBalancer(List<ServiceInstance> instances) {
+        ObjectProvider<ServiceInstanceListSupplier> supplier = new SimpleObjectProvider<>(new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return "user-service";
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(instances);
+            }
+        });
+        return new ConsistentHashLoadBalancer(supplier, "user-service", "userId");
+    }
+
+    private List<ServiceInstance> instances(int... ports) {
+        List<ServiceInstance> instances = new ArrayList<>();
+        for (int port : ports) {
+            instances.add(new DefaultServiceInstance("user-service-" + port, "user-service", "localhost", port, false));
+        }
+        return instances;
+    }
+}
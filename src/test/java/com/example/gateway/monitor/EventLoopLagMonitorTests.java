@@ -0,0 +1,101 @@
+package com.example.gateway.monitor;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.EventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.client.ReactorResourceFactory;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EventLoopLagMonitorのテストクラス
+ *
+ * イベントループを停止させた場合に、そのループの遅延が
+ * gateway.eventloop.lag に記録されることを確認します。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+class EventLoopLagMonitorTests {
+
+    private static final long STALL_MILLIS = 300;
+
+    private LoopResources loopResources;
+    private ReactorResourceFactory resourceFactory;
+
+    @BeforeEach
+    void setUp() {
+        loopResources = LoopResources.create("lag-test", 1, true);
+        resourceFactory = new ReactorResourceFactory();
+        resourceFactory.setUseGlobalResources(false);
+        resourceFactory.setLoopResources(loopResources);
+        resourceFactory.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        resourceFactory.destroy();
+        loopResources.disposeLater().block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * 停止したイベントループの遅延がそのループのタイマーに記録されることを確認するテスト
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordsLagOfStalledLoop() throws InterruptedException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EventLoopLagMonitor monitor = new EventLoopLagMonitor(resourceFactory, registry, Duration.ofSeconds(1));
+
+        // ループをブロッキング処理で停止させてから、プローブを投入する
+        EventLoopGroup group = loopResources.onServer(LoopResources.DEFAULT_NATIVE);
+        CountDownLatch stalled = new CountDownLatch(1);
+        group.execute(() -> {
+            stalled.countDown();
+            sleep(STALL_MILLIS);
+        });
+        assertThat(stalled.await(5, TimeUnit.SECONDS)).isTrue();
+        monitor.probe();
+
+        // プローブ実行後にタイマーが登録されるまで待機
+        CountDownLatch probed = new CountDownLatch(1);
+        group.execute(probed::countDown);
+        assertThat(probed.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Map<String, Timer> timers = monitor.getLagTimers();
+        assertThat(timers).hasSize(1);
+        Map.Entry<String, Timer> entry = timers.entrySet().iterator().next();
+        assertThat(entry.getKey()).startsWith("lag-test");
+        assertThat(entry.getValue().getId().getTag("loop")).isEqualTo(entry.getKey());
+        assertThat(entry.getValue().count()).isEqualTo(1);
+        assertThat(entry.getValue().max(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(STALL_MILLIS / 2.0);
+        assertThat(registry.find(EventLoopLagMonitor.LAG_METRIC_NAME).tag("loop", entry.getKey()).timer())
+                .isSameAs(entry.getValue());
+
+        // Actuatorエンドポイントにもループごとの統計として公開される
+        EventLoopEndpoint endpoint = new EventLoopEndpoint(
+                new StaticListableBeanFactory(Map.of("eventLoopLagMonitor", monitor))
+                        .getBeanProvider(EventLoopLagMonitor.class),
+                new BlockingCallDetector(false));
+        Map<String, Object> loops = (Map<String, Object>) endpoint.eventLoops().get("loops");
+        assertThat(loops).containsKey(entry.getKey());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
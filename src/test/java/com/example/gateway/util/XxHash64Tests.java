@@ -0,0 +1,46 @@
+package com.example.gateway.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * XxHash64のテストクラス
+ *
+ * 公式リファレンス実装の出力と一致することを確認します。
+ *
+ * @author Claude
+ * @version 1.0.0
+ */
+class XxHash64Tests {
+
+    /**
+     * 既知のテストベクターと一致することを確認するテスト
+     */
+    @Test
+    void matchesReferenceVectors() {
+        assertThat(XxHash64.hash(new byte[0])).isEqualTo(0xEF46DB3751D8E999L);
+        assertThat(XxHash64.hash("abc".getBytes(StandardCharsets.US_ASCII))).isEqualTo(0x44BC2CF5AD770999L);
+        // 32バイト以上（ストライプ処理を通る入力）。期待値はlz4-java 1.8.0で算出
+        assertThat(XxHash64.hash("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.US_ASCII)))
+                .isEqualTo(0x0B242D361FDA71BCL);
+        assertThat(XxHash64.hash(("{\"userName\":\"AnonymousUser\",\"timestamp\":\"t1\",\"source\":\"gateway\","
+                + "\"processedBy\":\"backend-api\",\"message\":\"User information retrieved successfully\"}")
+                .getBytes(StandardCharsets.UTF_8)))
+                .isEqualTo(0xF6E7AE5D77FF32AAL);
+    }
+
+    /**
+     * 32バイト以上の入力で、指定範囲のみがハッシュされることを確認するテスト
+     */
+    @Test
+    void hashesOnlyTheGivenRange() {
+        byte[] body = "{\"userName\":\"AnonymousUser\",\"source\":\"gateway\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] padded = new byte[body.length + 6];
+        System.arraycopy(body, 0, padded, 3, body.length);
+
+        assertThat(XxHash64.hash(padded, 3, body.length, 0L)).isEqualTo(XxHash64.hash(body));
+    }
+}